@@ -13,7 +13,7 @@ import edu.wpi.first.wpilibj.command.Scheduler;
  * <p>
  * Implements the following basic controls for the driver. 
  * <ls>
- * <li>Tank, Arcade or Single Stick drive 
+ * <li>Tank, Arcade, Single Stick or Curvature drive 
  * <li>Back Button to cancel a command 
  * <li>Start Button to reset the gyro and encoders 
  * <li>POV to rotate to angle 
@@ -60,6 +60,9 @@ public class TDefaultDriveCommand extends TSafeCommand {
         if (getCommandName().equals(COMMAND_NAME)) {
             logMessage(getParmDesc() + " starting");
         }
+
+        // Undo the brake of a previous command
+        driveSubsystem.restoreNeutralMode();
     }
 
     @Override
@@ -74,6 +77,9 @@ public class TDefaultDriveCommand extends TSafeCommand {
             driveSubsystem.resetEncoders();
 
             if (gyroDriveSubsystem != null) {
+                // Any held heading is no longer valid after
+                // the gyro is reset
+                gyroDriveSubsystem.releaseHeadingHold();
                 gyroDriveSubsystem.resetGyroAngle();
             }
         }
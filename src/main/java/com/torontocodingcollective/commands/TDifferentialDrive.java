@@ -8,12 +8,24 @@ import com.torontocodingcollective.speedcontroller.TSpeeds;
  */
 public class TDifferentialDrive {
 
-    private static final double DEFAULT_INPUT_DEADBAND = 0.07;
-    private static final double DEFAULT_MOTOR_DEADBAND = 0.03;
-    private static final double MAX_DEADBAND           = .25;
+    private static final double DEFAULT_INPUT_DEADBAND     = 0.07;
+    private static final double DEFAULT_MOTOR_DEADBAND     = 0.03;
+    private static final double MAX_DEADBAND               = .25;
 
-    private double              inputDeadband          = 0.0;
-    private double              motorSpeedDeadband     = 0.0;
+    private static final double DEFAULT_TURN_SENSITIVITY   = 1.0;
+    private static final double NEGATIVE_INERTIA_SCALAR    = 4.0;
+    private static final double QUICK_STOP_ALPHA           = 0.1;
+    private static final double QUICK_STOP_SCALAR          = 5.0;
+
+    private double              inputDeadband              = 0.0;
+    private double              motorSpeedDeadband         = 0.0;
+    private TInputCurve         inputCurve                 = new TInputCurve();
+
+    // Curvature drive state
+    private double              turnSensitivity            = DEFAULT_TURN_SENSITIVITY;
+    private double              previousRotation           = 0.0;
+    private double              negativeInertiaAccumulator = 0.0;
+    private double              quickStopAccumulator       = 0.0;
 
     public TDifferentialDrive() {
         this(DEFAULT_INPUT_DEADBAND, DEFAULT_MOTOR_DEADBAND);
@@ -214,6 +226,175 @@ public class TDifferentialDrive {
         return arcadeDrive(-leftStickPosition.y, rightStickPosition.x);
     }
 
+    /**
+     * Curvature Drive
+     * <p>
+     * Calculate the motor speeds required for curvature (cheesy) drive feel
+     * <p>
+     * The left stick is used as the speed, and the right stick sets the
+     * curvature of the path of the robot. Unlike arcade drive, the rate of
+     * rotation increases with the speed so that the turn radius stays the same
+     * at all speeds.
+     * <p>
+     * When the speed is within the input deadband, the robot will quick-turn
+     * (rotate on the spot) using the rotation input directly.
+     * <p>
+     * NOTE: deadbands will be used for both the input stick position
+     * {@see #setInputDeadband(double)} and the output motor speeds motor speed
+     * {@see #setMotorDeadband(double)}.
+     * 
+     * @param leftStickPostion
+     *            for the stick position to be used for the speed calculation. If
+     *            the leftStickPosition is {@code null}, then the calculated motor
+     *            speeds will be zero.
+     * @param rightStickPostion
+     *            for the stick position to be used for the curvature calculation.
+     *            If the rightStickPosition is {@code null}, then the calculated
+     *            motor speeds will be zero.
+     * @return TMotorSpeeds object containing the calculated left and right motor
+     *         speeds.
+     */
+    public TSpeeds curvatureDrive(TStickPosition leftStickPosition, TStickPosition rightStickPosition) {
+
+        if (leftStickPosition == null || rightStickPosition == null) {
+            return new TSpeeds();
+        }
+
+        // By convention the y axis of a joystick is inverted
+        return curvatureDrive(-leftStickPosition.y, rightStickPosition.x);
+    }
+
+    private TSpeeds curvatureDrive(double speed, double rotation) {
+
+        if (Math.abs(speed) <= inputDeadband) {
+            speed = 0;
+        }
+
+        if (Math.abs(rotation) <= inputDeadband) {
+            rotation = 0;
+        }
+
+        // Negative inertia counteracts the rotational inertia of
+        // the robot. When the rotation input changes, the change is
+        // amplified for a few loops so that the robot starts and
+        // stops turning when the driver expects.
+        double negativeInertia = rotation - previousRotation;
+        previousRotation = rotation;
+
+        negativeInertiaAccumulator += negativeInertia * NEGATIVE_INERTIA_SCALAR;
+        rotation += negativeInertiaAccumulator;
+
+        if (negativeInertiaAccumulator > 1) {
+            negativeInertiaAccumulator -= 1;
+        } else if (negativeInertiaAccumulator < -1) {
+            negativeInertiaAccumulator += 1;
+        } else {
+            negativeInertiaAccumulator = 0;
+        }
+
+        rotation = Math.min(1.0, Math.max(rotation, -1.0));
+
+        double scaledSpeed = scale(speed);
+
+        double angularPower;
+        boolean quickTurn = (speed == 0);
+
+        if (quickTurn) {
+
+            // Track the rotation while quick turning so that the
+            // robot can be stopped from spinning when the driver
+            // starts driving again.
+            quickStopAccumulator = (1 - QUICK_STOP_ALPHA) * quickStopAccumulator
+                    + QUICK_STOP_ALPHA * rotation * QUICK_STOP_SCALAR;
+
+            angularPower = scale(rotation);
+
+        } else {
+
+            // The rotation is proportional to the speed, which
+            // holds the turning radius constant at all speeds.
+            angularPower = Math.abs(scaledSpeed) * rotation * turnSensitivity - quickStopAccumulator;
+
+            if (quickStopAccumulator > 1) {
+                quickStopAccumulator -= 1;
+            } else if (quickStopAccumulator < -1) {
+                quickStopAccumulator += 1;
+            } else {
+                quickStopAccumulator = 0;
+            }
+        }
+
+        double leftSpeed = scaledSpeed + angularPower;
+        double rightSpeed = scaledSpeed - angularPower;
+
+        // When quick turning, any excess power is removed from the
+        // opposite side in order to keep rotating on the spot.
+        // When driving, the speeds are scaled down to preserve the
+        // requested curvature.
+        if (quickTurn) {
+            if (leftSpeed > 1.0) {
+                rightSpeed -= leftSpeed - 1.0;
+                leftSpeed = 1.0;
+            } else if (rightSpeed > 1.0) {
+                leftSpeed -= rightSpeed - 1.0;
+                rightSpeed = 1.0;
+            } else if (leftSpeed < -1.0) {
+                rightSpeed -= leftSpeed + 1.0;
+                leftSpeed = -1.0;
+            } else if (rightSpeed < -1.0) {
+                leftSpeed -= rightSpeed + 1.0;
+                rightSpeed = -1.0;
+            }
+        } else {
+            double maxSpeed = Math.max(Math.abs(leftSpeed), Math.abs(rightSpeed));
+            if (maxSpeed > 1.0) {
+                leftSpeed /= maxSpeed;
+                rightSpeed /= maxSpeed;
+            }
+        }
+
+        if (Math.abs(leftSpeed) <= motorSpeedDeadband) {
+            leftSpeed = 0;
+        }
+
+        if (Math.abs(rightSpeed) <= motorSpeedDeadband) {
+            rightSpeed = 0;
+        }
+
+        return new TSpeeds(leftSpeed, rightSpeed);
+    }
+
+    /**
+     * Field Oriented Speed
+     * <p>
+     * Calculate the speed to drive when the stick direction is used as the field
+     * heading. The speed is the magnitude of the stick position scaled using the
+     * input curve.
+     * <p>
+     * The heading to drive on is the angle of the stick
+     * {@link TStickPosition#getAngle()}.
+     * 
+     * @param singleStickPosition
+     *            for the stick position to be used in the calculation. If the
+     *            single stick position is {@code null}, then the calculated speed
+     *            will be zero.
+     * @return speed in the range 0 to 1.0
+     */
+    public double fieldOrientedSpeed(TStickPosition singleStickPosition) {
+
+        if (singleStickPosition == null) {
+            return 0;
+        }
+
+        double speed = scale(singleStickPosition.getMagnitude());
+
+        if (speed <= motorSpeedDeadband) {
+            return 0;
+        }
+
+        return speed;
+    }
+
     /**
      * Tank Drive
      * <p>
@@ -256,33 +437,27 @@ public class TDifferentialDrive {
         return new TSpeeds(leftSpeed, rightSpeed);
     }
 
+    /**
+     * Get the deadband of the input speed and rotation values
+     * 
+     * @return input deadband. Any values of Math.abs(input) <= inputDeadband are
+     *         treated as zero.
+     */
+    public double getInputDeadband() {
+        return inputDeadband;
+    }
+
     // This routine scales a joystick value to make the
-    // acceleration and turning more smooth. All values that are
-    // less than 0.6 are cut in half, and values above 0.6 are
-    // scaled to be from 0.3 to 1.0.
+    // acceleration and turning more smooth. The shape of the
+    // response is set by the input curve
+    // {@see #setInputCurve(TInputCurve)}.
     private double scale(double value) {
 
-        if (value > 1.0) {
-            value = 1.0;
-        }
-
-        double absValue = Math.abs(value);
-
-        if (absValue <= inputDeadband) {
+        if (Math.abs(value) <= inputDeadband) {
             return 0;
         }
 
-        if (absValue <= 0.6) {
-            return value / 2;
-        }
-
-        // Follow a y=mx + b curve to scale inputs from
-        // 0.6 to 1.0 to outputs of 0.3 to 1.0
-        if (value > 0) {
-            return 0.3 + (value - 0.6) * 7.0 / 4.0;
-        }
-
-        return -0.3 + (value + 0.6) * 7.0 / 4.0;
+        return inputCurve.get(value);
     }
 
     /**
@@ -300,6 +475,38 @@ public class TDifferentialDrive {
         this.inputDeadband = Math.abs(inputDeadband);
     }
 
+    /**
+     * Set the input curve used to shape the speed and rotation inputs
+     * <p>
+     * The default curve is a two segment curve where inputs up to 0.6 are cut
+     * in half, and inputs from 0.6 to 1.0 are scaled to outputs from 0.3 to 1.0.
+     * 
+     * @param inputCurve
+     *            {@link TInputCurve} to use. A {@code null} value is ignored.
+     */
+    public void setInputCurve(TInputCurve inputCurve) {
+        if (inputCurve == null) {
+            return;
+        }
+        this.inputCurve = inputCurve;
+    }
+
+    /**
+     * Set the turn sensitivity used for curvature drive
+     * <p>
+     * Larger values make tighter turns for the same rotation input.
+     * 
+     * @param turnSensitivity
+     *            value greater than zero. The default value is 1.0.
+     */
+    public void setTurnSensitivity(double turnSensitivity) {
+        if (turnSensitivity <= 0) {
+            System.out.println("Invalid turn sensitivity (" + turnSensitivity + "). setTurnSensitivity ignored");
+            return;
+        }
+        this.turnSensitivity = turnSensitivity;
+    }
+
     /**
      * Set the deadband of the motor speed values
      * <p>
@@ -0,0 +1,235 @@
+package com.torontocodingcollective.commands;
+
+/**
+ * Input response curve used to shape the driver input
+ * <p>
+ * The curve is calculated once when constructed and stored in a fixed size
+ * lookup table. Values are read from the table using linear interpolation so
+ * that the cost of shaping an input is the same for every curve type.
+ * <p>
+ * The curve is symmetric around zero. Only the magnitude of the input is looked
+ * up in the table and the sign of the input is applied to the output.
+ * <p>
+ * Curves are immutable. To change the curve, construct a new TInputCurve.
+ */
+public class TInputCurve {
+
+    public enum TCurveType {
+        /**
+         * Two segment linear curve. Inputs up to 0.6 are cut in half, and inputs
+         * from 0.6 to 1.0 are scaled to outputs from 0.3 to 1.0
+         */
+        DEFAULT,
+        /** Output equals input */
+        LINEAR,
+        /** Blend of linear and cubic curves set by the expo factor */
+        EXPO,
+        /** Output is the cube of the input */
+        CUBIC,
+        /** Piecewise linear curve through user specified points */
+        CUSTOM
+    }
+
+    /** Number of entries in the lookup table (0.005 input resolution) */
+    public static final int     TABLE_SIZE          = 201;
+
+    private static final double DEFAULT_EXPO_FACTOR = 0.5;
+
+    private static final double[] DEFAULT_INPUTS    = { 0.0, 0.6, 1.0 };
+    private static final double[] DEFAULT_OUTPUTS   = { 0.0, 0.3, 1.0 };
+
+    private final TCurveType    curveType;
+    private final double[]      table               = new double[TABLE_SIZE];
+
+    /**
+     * Construct the default two segment input curve
+     */
+    public TInputCurve() {
+        this(TCurveType.DEFAULT, DEFAULT_EXPO_FACTOR);
+    }
+
+    /**
+     * Construct an input curve of the specified type
+     *
+     * @param curveType
+     *            {@link TCurveType}. {@link TCurveType#CUSTOM} curves must be
+     *            constructed using {@link #TInputCurve(double[], double[])}
+     * @param expoFactor
+     *            used for {@link TCurveType#EXPO} curves in the range 0 (linear) to
+     *            1.0 (cubic). This value is ignored for other curve types.
+     */
+    public TInputCurve(TCurveType curveType, double expoFactor) {
+
+        if (curveType == null || curveType == TCurveType.CUSTOM) {
+            System.out.println("Invalid input curve type (" + curveType + "). Default curve used.");
+            curveType = TCurveType.DEFAULT;
+        }
+
+        if (expoFactor < 0 || expoFactor > 1.0) {
+            System.out.println(
+                    "Invalid expo factor (" + expoFactor + "). Default value " + DEFAULT_EXPO_FACTOR + " used.");
+            expoFactor = DEFAULT_EXPO_FACTOR;
+        }
+
+        this.curveType = curveType;
+
+        switch (curveType) {
+
+        case LINEAR:
+        case EXPO:
+        case CUBIC:
+            for (int i = 0; i < TABLE_SIZE; i++) {
+                double x = i / (TABLE_SIZE - 1.0);
+                double cubic = x * x * x;
+
+                if (curveType == TCurveType.LINEAR) {
+                    table[i] = x;
+                } else if (curveType == TCurveType.CUBIC) {
+                    table[i] = cubic;
+                } else {
+                    table[i] = expoFactor * cubic + (1.0 - expoFactor) * x;
+                }
+            }
+            break;
+
+        case DEFAULT:
+        default:
+            fillTable(DEFAULT_INPUTS, DEFAULT_OUTPUTS);
+            break;
+        }
+    }
+
+    /**
+     * Construct a custom input curve through the specified points
+     * <p>
+     * The curve is linear between each of the points. The point (0,0) is always
+     * used as the first point on the curve, and the last point is extended to an
+     * input of 1.0.
+     *
+     * @param inputs
+     *            in increasing order in the range 0 < input <= 1.0
+     * @param outputs
+     *            in the range 0 <= output <= 1.0 for each input
+     */
+    public TInputCurve(double[] inputs, double[] outputs) {
+
+        if (!isValidCurve(inputs, outputs)) {
+            System.out.println("Invalid custom input curve points. Default curve used.");
+            this.curveType = TCurveType.DEFAULT;
+            fillTable(DEFAULT_INPUTS, DEFAULT_OUTPUTS);
+            return;
+        }
+
+        this.curveType = TCurveType.CUSTOM;
+
+        // Add the origin and extend the curve to an input of 1.0
+        int pointCount = inputs.length + 1;
+        if (inputs[inputs.length - 1] < 1.0) {
+            pointCount++;
+        }
+
+        double[] curveInputs = new double[pointCount];
+        double[] curveOutputs = new double[pointCount];
+
+        for (int i = 0; i < inputs.length; i++) {
+            curveInputs[i + 1] = inputs[i];
+            curveOutputs[i + 1] = outputs[i];
+        }
+
+        curveInputs[pointCount - 1] = 1.0;
+        curveOutputs[pointCount - 1] = outputs[outputs.length - 1];
+
+        fillTable(curveInputs, curveOutputs);
+    }
+
+    /**
+     * Get the shaped value for the input
+     *
+     * @param value
+     *            in the range -1.0 to 1.0. Values outside this range are limited
+     *            to the range.
+     * @return shaped value in the range -1.0 to 1.0
+     */
+    public double get(double value) {
+
+        double absValue = Math.min(Math.abs(value), 1.0);
+
+        double position = absValue * (TABLE_SIZE - 1);
+        int index = (int) position;
+
+        if (index >= TABLE_SIZE - 1) {
+            return Math.copySign(table[TABLE_SIZE - 1], value);
+        }
+
+        double output = table[index] + (table[index + 1] - table[index]) * (position - index);
+
+        return Math.copySign(output, value);
+    }
+
+    /**
+     * Get the type of this curve
+     *
+     * @return {@link TCurveType} of this curve
+     */
+    public TCurveType getCurveType() {
+        return curveType;
+    }
+
+    /**
+     * Fill the lookup table from a piecewise linear curve
+     *
+     * @param inputs
+     *            starting at 0 and ending at 1.0 in increasing order
+     * @param outputs
+     *            for each input
+     */
+    private void fillTable(double[] inputs, double[] outputs) {
+
+        int segment = 0;
+
+        for (int i = 0; i < TABLE_SIZE; i++) {
+
+            double x = i / (TABLE_SIZE - 1.0);
+
+            while (segment < inputs.length - 2 && x > inputs[segment + 1]) {
+                segment++;
+            }
+
+            double x0 = inputs[segment];
+            double x1 = inputs[segment + 1];
+            double y0 = outputs[segment];
+            double y1 = outputs[segment + 1];
+
+            table[i] = y0 + (y1 - y0) * (x - x0) / (x1 - x0);
+        }
+    }
+
+    private boolean isValidCurve(double[] inputs, double[] outputs) {
+
+        if (inputs == null || outputs == null || inputs.length == 0 || inputs.length != outputs.length) {
+            return false;
+        }
+
+        double previousInput = 0;
+
+        for (int i = 0; i < inputs.length; i++) {
+
+            if (inputs[i] <= previousInput || inputs[i] > 1.0) {
+                return false;
+            }
+
+            if (outputs[i] < 0 || outputs[i] > 1.0) {
+                return false;
+            }
+
+            previousInput = inputs[i];
+        }
+
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return curveType.toString();
+    }
+}
@@ -96,6 +96,9 @@ public class TDriveTimeCommand extends TSafeCommand {
             logMessage(getParmDesc() + " starting");
         }
 
+        // Undo the brake of a previous command
+        driveSubsystem.restoreNeutralMode();
+
         driveSubsystem.setSpeed(speed, speed);
     }
 
@@ -143,7 +146,7 @@ public class TDriveTimeCommand extends TSafeCommand {
     @Override
     protected void end() {
         if (brakeWhenFinished) {
-            driveSubsystem.setSpeed(0, 0);
+            driveSubsystem.stopAndBrake();
         }
     }
     
@@ -120,6 +120,9 @@ public class TDriveOnHeadingCommand extends TSafeCommand {
             logMessage(getParmDesc() + " starting");
         }
 
+        // Undo the brake of a previous command
+        driveSubsystem.restoreNeutralMode();
+
         if (!error) {
             driveSubsystem.driveOnHeading(speed, heading);
         }
@@ -179,7 +182,7 @@ public class TDriveOnHeadingCommand extends TSafeCommand {
     @Override
     protected void end() {
         if (brakeWhenFinished) {
-            driveSubsystem.setSpeed(0, 0);
+            driveSubsystem.stopAndBrake();
             driveSubsystem.disableGyroPid();
         }
     }
@@ -0,0 +1,37 @@
+package com.torontocodingcollective.commands.gyroDrive;
+
+/**
+ * The TDriveSegment class is used to represent one segment of a path driven by
+ * the {@link TDriveSegmentsCommand}.
+ * <p>
+ * The drive segment is immutable.
+ */
+public class TDriveSegment {
+
+    /** Distance to drive on this segment in inches */
+    public final double distanceInches;
+    /** Heading of this segment 0 <= heading < 360 */
+    public final double heading;
+
+    /**
+     * Construct a drive segment
+     * <p>
+     * Drive segments are immutable
+     *
+     * @param distanceInches
+     *            to drive on this segment. The distance must be greater than zero.
+     * @param heading
+     *            of this segment in the range 0 <= heading < 360
+     */
+    public TDriveSegment(double distanceInches, double heading) {
+        this.distanceInches = distanceInches;
+        this.heading = heading;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append('(').append(distanceInches).append("in,").append(heading).append("deg)");
+        return sb.toString();
+    }
+}
@@ -0,0 +1,372 @@
+package com.torontocodingcollective.commands.gyroDrive;
+
+import com.torontocodingcollective.TConst;
+import com.torontocodingcollective.TUtil;
+import com.torontocodingcollective.commands.TSafeCommand;
+import com.torontocodingcollective.oi.TOi;
+import com.torontocodingcollective.subsystem.TGyroDriveSubsystem;
+
+/**
+ * Drive Segments Command
+ * <p>
+ * This command drives a sequence of distance and heading segments as one
+ * continuous path.
+ * <p>
+ * The speed follows a single profile over the whole path. The robot accelerates
+ * from the start, slows down for each change in heading and decelerates to the
+ * end of the path. The heading changes gradually over the transition distance
+ * around the end of each segment so that the robot drives an arc from one
+ * segment to the next instead of stopping and rotating.
+ * <p>
+ * The encoders are not reset. The distance is measured from the distance at the
+ * start of the command.
+ */
+public class TDriveSegmentsCommand extends TSafeCommand {
+
+    private static final String COMMAND_NAME =
+            TDriveSegmentsCommand.class.getSimpleName();
+
+    /** Default distance to accelerate from the minimum speed to the max speed */
+    public static final double        DEFAULT_RAMP_INCHES       = 12.0;
+    /** Default distance used to change heading between segments */
+    public static final double        DEFAULT_TRANSITION_INCHES = 12.0;
+    /** Default speed at the start and end of the path */
+    public static final double        DEFAULT_MIN_SPEED         = 0.2;
+
+    private final TDriveSegment[]     segments;
+    private final double              maxSpeed;
+    private final double              minSpeed;
+    private final double              rampInches;
+    private final double              transitionInches;
+    private final boolean             brakeWhenFinished;
+    private boolean                   error                     = false;
+
+    private final TGyroDriveSubsystem driveSubsystem;
+
+    // Path calculated on construction. For each segment, the
+    // distance at the end of the segment, and for each segment
+    // boundary, the transition half width and the corner speed.
+    private double[]                  segmentEnd;
+    private double[]                  transitionHalfWidth;
+    private double[]                  cornerSpeed;
+    private double                    totalDistance             = 0;
+
+    private double                    startDistance             = 0;
+
+    /**
+     * Construct a new DriveSegmentsCommand with the default ramp and transition
+     * distances
+     *
+     * @param segments
+     *            list of segments to drive in order. If any segment is invalid,
+     *            then the command will end immediately and print an error to the
+     *            DriverStation
+     * @param speed
+     *            max speed at which to drive in the range 0 <= speed <= 1.0.
+     * @param timeout
+     *            the time after which this command will end automatically. A value
+     *            of {@link TConst#NO_COMMAND_TIMEOUT} will be used as an infinite
+     *            timeout.
+     * @param brakeWhenFinished
+     *            {@code true} to brake when the command finishes {@code false} to
+     *            coast into the next command.
+     * @param oi
+     *            that extend the TOi operator input class
+     * @param driveSubsystem
+     *            that extends the TGyroDriveSubsystem
+     */
+    public TDriveSegmentsCommand(TDriveSegment[] segments, double speed, double timeout,
+            boolean brakeWhenFinished, TOi oi, TGyroDriveSubsystem driveSubsystem) {
+
+        this(segments, speed, DEFAULT_RAMP_INCHES, DEFAULT_TRANSITION_INCHES, timeout,
+                brakeWhenFinished, oi, driveSubsystem);
+    }
+
+    /**
+     * Construct a new DriveSegmentsCommand
+     *
+     * @param segments
+     *            list of segments to drive in order. If any segment is invalid,
+     *            then the command will end immediately and print an error to the
+     *            DriverStation
+     * @param speed
+     *            max speed at which to drive in the range 0 <= speed <= 1.0.
+     * @param rampInches
+     *            distance over which the robot accelerates from the minimum speed
+     *            to the max speed. The same distance is used to decelerate.
+     * @param transitionInches
+     *            distance over which the heading changes from one segment to the
+     *            next. Larger values drive wider arcs.
+     * @param timeout
+     *            the time after which this command will end automatically. A value
+     *            of {@link TConst#NO_COMMAND_TIMEOUT} will be used as an infinite
+     *            timeout.
+     * @param brakeWhenFinished
+     *            {@code true} to brake when the command finishes {@code false} to
+     *            coast into the next command.
+     * @param oi
+     *            that extend the TOi operator input class
+     * @param driveSubsystem
+     *            that extends the TGyroDriveSubsystem
+     */
+    public TDriveSegmentsCommand(TDriveSegment[] segments, double speed,
+            double rampInches, double transitionInches, double timeout,
+            boolean brakeWhenFinished, TOi oi, TGyroDriveSubsystem driveSubsystem) {
+
+        super(timeout, oi);
+
+        this.driveSubsystem = driveSubsystem;
+
+        requires(driveSubsystem);
+
+        // Copy the segments so that they cannot be changed after validation
+        this.segments = segments == null ? null : segments.clone();
+        this.maxSpeed = Math.min(1.0, Math.max(speed, 0));
+        this.minSpeed = Math.min(DEFAULT_MIN_SPEED, this.maxSpeed);
+        this.rampInches = Math.max(rampInches, 1.0);
+        this.transitionInches = Math.max(transitionInches, 0);
+        this.brakeWhenFinished = brakeWhenFinished;
+
+        if (this.segments == null || this.segments.length == 0) {
+            System.out.println(
+                    "No segments specified on " + COMMAND_NAME
+                    + ".  Command ending immediately");
+            error = true;
+            return;
+        }
+
+        for (TDriveSegment segment : this.segments) {
+
+            if (segment.heading < 0 || segment.heading >= 360) {
+                System.out.println(
+                        "Heading on " + COMMAND_NAME
+                        + " must be >= 0 or < 360 degrees. " + segment.heading
+                        + " is invalid.  Command ending immediately");
+                error = true;
+                return;
+            }
+
+            if (segment.distanceInches <= 0) {
+                System.out.println(
+                        "Distance on " + COMMAND_NAME
+                        + " must be > 0. " + segment.distanceInches
+                        + " is invalid.  Command ending immediately");
+                error = true;
+                return;
+            }
+        }
+
+        planPath();
+    }
+
+    @Override
+    protected String getCommandName() { return COMMAND_NAME; }
+
+    @Override
+    protected String getParmDesc() {
+
+        StringBuilder sb = new StringBuilder();
+        sb.append("segments");
+        if (segments != null) {
+            for (TDriveSegment segment : segments) {
+                sb.append(' ').append(segment);
+            }
+        }
+
+        return sb.toString()
+                + ", speed " + this.maxSpeed
+                + ", ramp " + this.rampInches
+                + ", transition " + this.transitionInches
+                + ", brake " + this.brakeWhenFinished
+                + ", " + super.getParmDesc();
+    }
+
+    /**
+     * Calculate the cumulative segment distances and the transition between
+     * each segment
+     */
+    private void planPath() {
+
+        int segmentCount = segments.length;
+
+        segmentEnd = new double[segmentCount];
+        transitionHalfWidth = new double[segmentCount];
+        cornerSpeed = new double[segmentCount];
+
+        for (int i = 0; i < segmentCount; i++) {
+            totalDistance += segments[i].distanceInches;
+            segmentEnd[i] = totalDistance;
+        }
+
+        // There is a transition at the end of every segment
+        // except the last one.
+        for (int i = 0; i < segmentCount - 1; i++) {
+
+            // The transition cannot use more than half of
+            // either segment
+            double halfWidth = transitionInches / 2.0;
+            halfWidth = Math.min(halfWidth, segments[i].distanceInches / 2.0);
+            halfWidth = Math.min(halfWidth, segments[i + 1].distanceInches / 2.0);
+
+            transitionHalfWidth[i] = halfWidth;
+
+            // Slow down in proportion to the change in heading.
+            double headingChange = Math.abs(getHeadingChange(i));
+            cornerSpeed[i] = Math.max(minSpeed, maxSpeed * (1.0 - headingChange / 180.0));
+        }
+    }
+
+    /**
+     * Get the change in heading from the segment to the next segment
+     *
+     * @param segmentIndex
+     * @return heading change in the range -180 to 180 degrees
+     */
+    private double getHeadingChange(int segmentIndex) {
+
+        double headingChange = segments[segmentIndex + 1].heading - segments[segmentIndex].heading;
+
+        if (headingChange > 180) {
+            headingChange -= 360.0;
+        }
+
+        if (headingChange < -180) {
+            headingChange += 360.0;
+        }
+
+        return headingChange;
+    }
+
+    /**
+     * Get the heading setpoint at the specified distance along the path.
+     * <p>
+     * Inside a transition, the heading changes linearly with the distance which
+     * drives the robot on an arc from one segment to the next.
+     *
+     * @param distance
+     *            along the path in inches
+     * @return heading in the range 0 <= heading < 360
+     */
+    private double getHeading(double distance) {
+
+        for (int i = 0; i < segments.length - 1; i++) {
+
+            double halfWidth = transitionHalfWidth[i];
+
+            if (halfWidth > 0 && Math.abs(distance - segmentEnd[i]) < halfWidth) {
+
+                double fraction = (distance - (segmentEnd[i] - halfWidth)) / (2.0 * halfWidth);
+
+                double heading = segments[i].heading + getHeadingChange(i) * fraction;
+
+                if (heading < 0) {
+                    heading += 360.0;
+                }
+
+                return heading % 360.0;
+            }
+
+            if (distance < segmentEnd[i]) {
+                return segments[i].heading;
+            }
+        }
+
+        return segments[segments.length - 1].heading;
+    }
+
+    /**
+     * Get the speed setpoint at the specified distance along the path.
+     * <p>
+     * The speed is the lowest of the acceleration ramp from the start, the
+     * deceleration ramp to the end, and the ramps to and from the corner speed
+     * at each transition.
+     *
+     * @param distance
+     *            along the path in inches
+     * @return speed in the range minSpeed to maxSpeed
+     */
+    private double getSpeed(double distance) {
+
+        double slope = (maxSpeed - minSpeed) / rampInches;
+
+        double speed = maxSpeed;
+
+        speed = Math.min(speed, minSpeed + slope * Math.max(0, distance));
+        speed = Math.min(speed, minSpeed + slope * Math.max(0, totalDistance - distance));
+
+        for (int i = 0; i < segments.length - 1; i++) {
+            double distanceToTransition = Math.max(0, Math.abs(distance - segmentEnd[i]) - transitionHalfWidth[i]);
+            speed = Math.min(speed, cornerSpeed[i] + slope * distanceToTransition);
+        }
+
+        return speed;
+    }
+
+    @Override
+    protected void initialize() {
+
+        // Only print the command start message
+        // if this command was not subclassed
+        if (getCommandName().equals(COMMAND_NAME)) {
+            logMessage(getParmDesc() + " starting");
+        }
+
+        // Undo the brake of a previous command
+        driveSubsystem.restoreNeutralMode();
+
+        if (error) {
+            return;
+        }
+
+        // Carry the distance from the previous command
+        // instead of resetting the encoders.
+        startDistance = driveSubsystem.getDistanceInches();
+
+        driveSubsystem.driveOnHeading(getSpeed(0), getHeading(0));
+    }
+
+    @Override
+    protected void execute() {
+
+        // If there is an error, then do nothing
+        if (error) {
+            return;
+        }
+
+        double distance = driveSubsystem.getDistanceInches() - startDistance;
+
+        driveSubsystem.driveOnHeading(getSpeed(distance), getHeading(distance));
+    }
+
+    @Override
+    protected boolean isFinished() {
+
+        if (error) {
+            logMessage("Ended with error - see previous message for details");
+            return true;
+        }
+
+        double distance = driveSubsystem.getDistanceInches() - startDistance;
+
+        // Check for a timeout or cancel
+        if (super.isFinished()) {
+            logMessage("Command ending at distance " + TUtil.round(distance, 2) + "inches");
+            return true;
+        }
+
+        if (distance >= totalDistance) {
+            logMessage("Command ending at distance " + TUtil.round(distance, 2) + "inches");
+            return true;
+        }
+
+        return false;
+    }
+
+    @Override
+    protected void end() {
+        if (brakeWhenFinished) {
+            driveSubsystem.stopAndBrake();
+            driveSubsystem.disableGyroPid();
+        }
+    }
+}
@@ -133,7 +133,10 @@ public class TRotateToHeadingCommand extends TSafeCommand {
         }
 
         logMessage("current heading " + driveSubsystem.getGryoAngle());
-        
+
+        // Undo the brake of a previous command
+        driveSubsystem.restoreNeutralMode();
+
         if (error) {
             return;
         }
@@ -178,7 +181,7 @@ public class TRotateToHeadingCommand extends TSafeCommand {
     @Override
     protected void end() {
         // Always brake at the end of a Rotate to Heading command
-        driveSubsystem.setSpeed(0, 0);
+        driveSubsystem.stopAndBrake();
         driveSubsystem.disableGyroPid();
     }
 
@@ -1,5 +1,9 @@
 package com.torontocodingcollective.oi;
 
+import java.util.ArrayList;
+import java.util.List;
+
+import edu.wpi.first.wpilibj.DriverStation;
 import edu.wpi.first.wpilibj.Joystick;
 
 /**
@@ -13,6 +17,13 @@ import edu.wpi.first.wpilibj.Joystick;
  * {@link TGameController_Logitech} <br>
  * {@link TGameController_PS} <br>
  * {@link TGameController_Xbox}
+ * <p>
+ * Each read of an axis, button or POV is a separate call to the
+ * {@link DriverStation}. To read the controller once per cycle, call
+ * {@link #updateSnapshot()} (or {@link #updateAllSnapshots()}, which is called
+ * by {@link TOi#updatePeriodic()}) at the start of each cycle. After the first
+ * snapshot, all axis, button and POV values are returned from the snapshot, so
+ * the snapshot must be updated every cycle.
  *
  */
 public abstract class TGameController extends Joystick {
@@ -37,6 +48,23 @@ public abstract class TGameController extends Joystick {
      */
     public double axisDeadband = 0.07;
 
+    // Maximum number of axes on a DriverStation joystick
+    private static final int                   MAX_AXES            = 12;
+
+    // Maximum number of buttons in the button bitmask
+    private static final int                   MAX_BUTTONS         = 32;
+
+    // All game controllers, updated by updateAllSnapshots
+    private static final List<TGameController> gameControllers     = new ArrayList<TGameController>();
+
+    // Snapshot of the controller inputs
+    private final double[]                     snapshotAxes        = new double[MAX_AXES];
+    private int                                snapshotAxisCount   = 0;
+    private int                                snapshotButtons     = 0;
+    private int                                snapshotButtonCount = 0;
+    private int                                snapshotPov         = -1;
+    private boolean                            snapshotValid       = false;
+
     /**
      * Construct an instance of a GameController.
      * <p>
@@ -47,6 +75,19 @@ public abstract class TGameController extends Joystick {
      */
     protected TGameController(int port) {
         super(port);
+        gameControllers.add(this);
+    }
+
+    /**
+     * Update the input snapshot of all TGameControllers
+     * <p>
+     * This routine is called from {@link TOi#updatePeriodic()} and should be
+     * called once at the start of each cycle.
+     */
+    public static void updateAllSnapshots() {
+        for (TGameController gameController : gameControllers) {
+            gameController.updateSnapshot();
+        }
     }
 
     /**
@@ -124,7 +165,7 @@ public abstract class TGameController extends Joystick {
     protected double getFilteredRawAxis(int axisNumber) {
 
         // Round to the nearest 100th
-        double axisValue = Math.round(super.getRawAxis(axisNumber) * 100.0) / 100.0;
+        double axisValue = Math.round(getRawAxis(axisNumber) * 100.0) / 100.0;
 
         if (Math.abs(axisValue) <= axisDeadband) {
             return 0;
@@ -133,6 +174,116 @@ public abstract class TGameController extends Joystick {
         return axisValue;
     }
 
+    /**
+     * Get the number of axes on the controller
+     * <p>
+     * The value is read from the snapshot if a snapshot has been taken.
+     * 
+     * @return number of axes
+     */
+    @Override
+    public int getAxisCount() {
+
+        if (snapshotValid) {
+            return snapshotAxisCount;
+        }
+
+        return super.getAxisCount();
+    }
+
+    /**
+     * Get the number of buttons on the controller
+     * <p>
+     * The value is read from the snapshot if a snapshot has been taken.
+     * 
+     * @return number of buttons
+     */
+    @Override
+    public int getButtonCount() {
+
+        if (snapshotValid) {
+            return snapshotButtonCount;
+        }
+
+        return super.getButtonCount();
+    }
+
+    /**
+     * Get the angle of the POV
+     * <p>
+     * The value is read from the snapshot if a snapshot has been taken.
+     * 
+     * @return angle in degrees, or -1 if the POV is not pressed
+     */
+    @Override
+    public int getPOV() {
+        return getPOV(0);
+    }
+
+    /**
+     * Get the angle of the POV
+     * <p>
+     * The value of the first POV is read from the snapshot if a snapshot has been
+     * taken.
+     * 
+     * @param pov
+     *            index of the POV
+     * @return angle in degrees, or -1 if the POV is not pressed
+     */
+    @Override
+    public int getPOV(int pov) {
+
+        if (snapshotValid && pov == 0) {
+            return snapshotPov;
+        }
+
+        return super.getPOV(pov);
+    }
+
+    /**
+     * Get the value of an axis
+     * <p>
+     * The value is read from the snapshot if a snapshot has been taken.
+     * 
+     * @param axis
+     *            index of the axis starting at 0
+     * @return axis value -1.0 to 1.0
+     */
+    @Override
+    public double getRawAxis(int axis) {
+
+        if (snapshotValid) {
+            if (axis < 0 || axis >= snapshotAxisCount) {
+                return 0;
+            }
+            return snapshotAxes[axis];
+        }
+
+        return super.getRawAxis(axis);
+    }
+
+    /**
+     * Get the value of a button
+     * <p>
+     * The value is read from the snapshot if a snapshot has been taken.
+     * 
+     * @param button
+     *            index of the button starting at 1
+     * @return {@code true} if pressed, {@code false} otherwise
+     */
+    @Override
+    public boolean getRawButton(int button) {
+
+        if (snapshotValid) {
+            if (button < 1 || button > MAX_BUTTONS) {
+                return false;
+            }
+            return (snapshotButtons & (1 << (button - 1))) != 0;
+        }
+
+        return super.getRawButton(button);
+    }
+
     /**
      * Get the stick position of the specified stick.
      * <p>
@@ -247,6 +398,38 @@ public abstract class TGameController extends Joystick {
         super.setRumble(RumbleType.kRightRumble, volume);
     }
 
+    /**
+     * Read all of the axes, buttons and the POV of this controller from the
+     * {@link DriverStation} into the snapshot.
+     * <p>
+     * After the first snapshot, all accessors return the values from the
+     * snapshot.
+     */
+    public void updateSnapshot() {
+
+        DriverStation ds = DriverStation.getInstance();
+
+        int port = getPort();
+
+        snapshotAxisCount = Math.min(ds.getStickAxisCount(port), MAX_AXES);
+
+        for (int i = 0; i < snapshotAxisCount; i++) {
+            snapshotAxes[i] = ds.getStickAxis(port, i);
+        }
+
+        snapshotButtonCount = ds.getStickButtonCount(port);
+        snapshotButtons = ds.getStickButtons(port);
+
+        if (ds.getStickPOVCount(port) > 0) {
+            snapshotPov = ds.getStickPOV(port, 0);
+        }
+        else {
+            snapshotPov = -1;
+        }
+
+        snapshotValid = true;
+    }
+
     @Override
     public String toString() {
 
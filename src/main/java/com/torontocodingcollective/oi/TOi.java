@@ -72,7 +72,12 @@ public abstract class TOi {
     /**
      * Update the elements of the OI that need updating and put data to the
      * SmartDashboard
+     * <p>
+     * Reads the inputs of all {@link TGameController}s once for this cycle.
+     * Subclasses that override this routine should call
+     * {@code super.updatePeriodic()} before reading any controller inputs.
      */
     public void updatePeriodic() {
+        TGameController.updateAllSnapshots();
     }
 }
@@ -26,6 +26,40 @@ public class TStickPosition {
         this.y = y;
     }
 
+    /**
+     * Get the angle of this stick position
+     * <p>
+     * The angle is measured clockwise from the stick pushed straight forward
+     * (away from the driver) which matches the angle convention of the gyro.
+     * <p>
+     * NOTE: By convention the y axis of a joystick is inverted.
+     * 
+     * @return angle in degrees 0 <= angle < 360 or 0 if the stick is centered
+     */
+    public double getAngle() {
+
+        if (x == 0 && y == 0) {
+            return 0;
+        }
+
+        double angle = Math.toDegrees(Math.atan2(x, -y));
+
+        if (angle < 0) {
+            angle += 360.0;
+        }
+
+        return angle;
+    }
+
+    /**
+     * Get the magnitude (distance from center) of this stick position
+     * 
+     * @return magnitude in the range 0 to 1.0
+     */
+    public double getMagnitude() {
+        return Math.min(1.0, Math.sqrt(x * x + y * y));
+    }
+
     @Override
     public String toString() {
         StringBuilder sb = new StringBuilder();
@@ -0,0 +1,50 @@
+package com.torontocodingcollective.sensors;
+
+/**
+ * TTimestampedSample is a sensor value and the FPGA time that the value was
+ * measured.
+ * <p>
+ * The timestamp is used to align values from sensors that have different
+ * latencies and update rates.
+ * <p>
+ * The sample is immutable.
+ */
+public class TTimestampedSample {
+
+    /** Sensor value in the units of the sensor */
+    public final double value;
+    /** FPGA time of the measurement in microseconds */
+    public final long   timestampMicros;
+
+    /**
+     * Construct a timestamped sample
+     * 
+     * @param value
+     *            sensor value in the units of the sensor
+     * @param timestampMicros
+     *            FPGA time of the measurement in microseconds
+     */
+    public TTimestampedSample(double value, long timestampMicros) {
+        this.value = value;
+        this.timestampMicros = timestampMicros;
+    }
+
+    /**
+     * Convert an FPGA time in seconds to microseconds
+     * 
+     * @param timestampSeconds
+     *            FPGA time in seconds, for example from
+     *            {@code Timer.getFPGATimestamp()}
+     * @return FPGA time in microseconds
+     */
+    public static long toMicros(double timestampSeconds) {
+        return Math.round(timestampSeconds * 1.0e6);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(value).append('@').append(timestampMicros).append("us");
+        return sb.toString();
+    }
+}
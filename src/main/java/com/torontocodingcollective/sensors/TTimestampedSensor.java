@@ -0,0 +1,23 @@
+package com.torontocodingcollective.sensors;
+
+/**
+ * Common interface for sensors that can report when a value was measured
+ * <p>
+ * Known implementations: {@link com.torontocodingcollective.sensors.encoder.TEncoder},
+ * {@link com.torontocodingcollective.sensors.gyro.TGyro},
+ * {@link com.torontocodingcollective.sensors.limitSwitch.TLimitSwitch},
+ * {@link com.torontocodingcollective.sensors.ultrasonic.TUltrasonicSensor}
+ */
+public interface TTimestampedSensor {
+
+    /**
+     * Get the current value of the sensor and the time it was measured
+     * <p>
+     * Sensors that do not know when the value was measured use the time the
+     * value was read.
+     * 
+     * @return {@link TTimestampedSample} with the main value of the sensor
+     */
+    public TTimestampedSample getSample();
+
+}
@@ -0,0 +1,74 @@
+package com.torontocodingcollective.sensors.encoder;
+
+import edu.wpi.first.wpilibj.Timer;
+
+/**
+ * TAdaptiveRate chooses between the period based rate measured by the FPGA and
+ * the rate calculated from the change in counts.
+ * <p>
+ * At low speeds there are only a few counts in each loop, so the rate from the
+ * change in counts is coarse and the period between pulses is more accurate. At
+ * high speeds there are many counts in each loop, and the change in counts gives
+ * an accurate rate without the lag of averaging the pulse periods.
+ * <p>
+ * Used by the DIO encoders {@link TDioEncoder}.
+ */
+class TAdaptiveRate {
+
+    // Minimum time between count samples (seconds)
+    private static final double MIN_SAMPLE_PERIOD = 0.005;
+
+    private final int           countThreshold;
+
+    private boolean             initialized       = false;
+    private int                 lastCount         = 0;
+    private double              lastTime          = 0;
+    private double              rate              = 0;
+
+    TAdaptiveRate(int countThreshold) {
+        this.countThreshold = Math.max(1, countThreshold);
+    }
+
+    /**
+     * Get the rate
+     *
+     * @param count
+     *            current raw count
+     * @param periodRate
+     *            rate measured from the pulse period in distance/second
+     * @param distancePerPulse
+     *            used to convert the count rate to distance/second
+     * @return rate in distance/second
+     */
+    double getRate(int count, double periodRate, double distancePerPulse) {
+
+        double time = Timer.getFPGATimestamp();
+
+        if (!initialized) {
+            initialized = true;
+            lastCount = count;
+            lastTime = time;
+            rate = periodRate;
+            return rate;
+        }
+
+        double dt = time - lastTime;
+
+        if (dt < MIN_SAMPLE_PERIOD) {
+            return rate;
+        }
+
+        int countDelta = count - lastCount;
+
+        if (Math.abs(countDelta) >= countThreshold) {
+            rate = countDelta * distancePerPulse / dt;
+        } else {
+            rate = periodRate;
+        }
+
+        lastCount = count;
+        lastTime = time;
+
+        return rate;
+    }
+}
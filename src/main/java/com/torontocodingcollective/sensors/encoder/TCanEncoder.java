@@ -39,4 +39,14 @@ public class TCanEncoder extends TEncoder {
         return super.getRate(talonSRX.getSelectedSensorVelocity(0));
     }
 
+    /**
+     * The TalonSRX measures the rate in encoder counts per 100ms
+     * <p>
+     * {@inheritDoc}
+     */
+    @Override
+    public double getRatePeriod() {
+        return 0.1;
+    }
+
 }
@@ -4,50 +4,216 @@ import com.revrobotics.CANEncoder;
 import com.revrobotics.CANSparkMax;
 
 /**
- * TCanEncoder reads a quadrature encoder plugged into a TalonSRX
+ * TCanSparkEncoder reads the encoder attached to a CANSparkMax
+ * <p>
+ * The SparkMax reports the position in motor rotations and the velocity in
+ * rotations per minute. The position and velocity are converted to encoder
+ * counts using the counts per rotation, and the full precision distance is
+ * available from {@link #getDistance()}.
+ * <p>
+ * NOTE: {@link #getRate()} returns encoder counts/second so that the rate is in
+ * the same units as the distance. The raw motor speed in rotations per minute
+ * is available from {@link #getRotationsPerMinute()}.
+ * <p>
+ * If the gearing between the motor and the wheel is set using
+ * {@link #setGearing(double, double)}, the distance and rate are also available
+ * in inches.
  * <p>
  * Extends {@link TEncoder}
  */
 public class TCanSparkEncoder extends TEncoder {
 
-    private CANEncoder encoder;
-
-    private double prevEncoderPosition;
     /**
-     * Encoder constructor. Construct a Encoder given a TalonSRX device. 
-     * The encoder must be a quadrature encoder plugged into the TalonSRX.
+     * Default encoder counts per motor rotation
      * <p>
-     * The encoder will be reset to zero when constructed
-     * @param talonSRX where the quadrature encoder is attached
-     * @param isInverted {@code true} if inverted, {@code false} otherwise
+     * Used to convert the rotations reported by the SparkMax into encoder counts.
+     * This is the scale that was used by earlier versions of this class, and is
+     * kept so that existing encoder counts per inch constants are not changed. It
+     * is not the resolution of the motor sensor.
+     */
+    public static final double  DEFAULT_COUNTS_PER_ROTATION = 64.0;
+
+    // A reading of exactly zero when the previous position was
+    // farther than this from zero is treated as a glitch
+    private static final double GLITCH_THRESHOLD_ROTATIONS  = 1.0;
+
+    private final CANEncoder    encoder;
+    private final double        countsPerRotation;
+
+    // Motor rotations for each rotation of the wheel, and the
+    // wheel diameter. Zero if the gearing is not set.
+    private double              gearRatio                   = 0;
+    private double              wheelDiameterInches         = 0;
+
+    private double              prevEncoderPosition         = 0;
+
+    /**
+     * Encoder constructor. Construct an Encoder given a CANSparkMax device
+     * using the {@link #DEFAULT_COUNTS_PER_ROTATION}.
+     *
+     * @param canSparkMax
+     *            where the encoder is attached
+     * @param isInverted
+     *            {@code true} if inverted, {@code false} otherwise
      */
     public TCanSparkEncoder(CANSparkMax canSparkMax, boolean isInverted) {
+        this(canSparkMax, isInverted, DEFAULT_COUNTS_PER_ROTATION);
+    }
+
+    /**
+     * Encoder constructor. Construct an Encoder given a CANSparkMax device.
+     *
+     * @param canSparkMax
+     *            where the encoder is attached
+     * @param isInverted
+     *            {@code true} if inverted, {@code false} otherwise
+     * @param countsPerRotation
+     *            encoder counts for each rotation of the motor
+     */
+    public TCanSparkEncoder(CANSparkMax canSparkMax, boolean isInverted, double countsPerRotation) {
         super(isInverted);
-        encoder = new CANEncoder(canSparkMax);
-        prevEncoderPosition = 0;
+        this.encoder = new CANEncoder(canSparkMax);
+
+        if (countsPerRotation <= 0) {
+            System.out.println("Invalid counts per rotation (" + countsPerRotation + ") on TCanSparkEncoder. "
+                    + "Default value " + DEFAULT_COUNTS_PER_ROTATION + " used.");
+            countsPerRotation = DEFAULT_COUNTS_PER_ROTATION;
+        }
+        this.countsPerRotation = countsPerRotation;
     }
 
     @Override
     public int get() {
-    	
-    	double encoderPos = encoder.getPosition();
-    	
-    	// Filter out glitches in the encoder
-    	// reading where it can sometimes return zero.
-    	if (encoderPos == 0) {
-    		encoderPos = prevEncoderPosition;
-    	}
-    	prevEncoderPosition = encoderPos;
-    	
-        // Convert the raw counts from a double to 
-    	// an encoder count.
-        return super.get((int) (encoderPos * 64.0));
+        return (int) Math.round(getDistance());
+    }
+
+    /**
+     * Get the counts per rotation used to convert the motor rotations to encoder
+     * counts
+     *
+     * @return counts per rotation
+     */
+    public double getCountsPerRotation() {
+        return countsPerRotation;
+    }
+
+    /**
+     * Get the encoder counts per inch of travel of the wheel
+     * <p>
+     * The counts per inch can be used as the encoder counts per inch of a drive
+     * subsystem.
+     *
+     * @return counts per inch, or 0 if the gearing is not set
+     */
+    public double getCountsPerInch() {
+
+        if (gearRatio == 0) {
+            return 0;
+        }
+
+        return countsPerRotation * gearRatio / (Math.PI * wheelDiameterInches);
+    }
+
+    @Override
+    public double getDistance() {
+        // Convert the rotations to encoder counts
+        return super.getDistance(getRotations() * countsPerRotation);
+    }
+
+    /**
+     * Get the distance travelled by the wheel
+     *
+     * @return distance in inches, or 0 if the gearing is not set
+     */
+    public double getDistanceInches() {
+
+        double countsPerInch = getCountsPerInch();
+
+        if (countsPerInch == 0) {
+            return 0;
+        }
+
+        return getDistance() / countsPerInch;
     }
 
+    /**
+     * Get the rate of this encoder
+     * <p>
+     * NOTE: the rate is in encoder counts/second, not the motor rotations per
+     * minute reported by the SparkMax.
+     *
+     * @return speed in encoder counts/second
+     */
     @Override
     public double getRate() {
-        // Convert the raw rate
-        return super.getRate((int) encoder.getVelocity());
+        // Convert the rotations/min to encoder counts/sec
+        return super.getRate(getRotationsPerMinute() * countsPerRotation / 60.0);
+    }
+
+    /**
+     * Get the speed of the wheel
+     *
+     * @return speed in inches/second, or 0 if the gearing is not set
+     */
+    public double getRateInchesPerSecond() {
+
+        double countsPerInch = getCountsPerInch();
+
+        if (countsPerInch == 0) {
+            return 0;
+        }
+
+        return getRate() / countsPerInch;
+    }
+
+    /**
+     * Get the raw position of the encoder
+     *
+     * @return position in motor rotations
+     */
+    public double getRotations() {
+
+        double encoderPos = encoder.getPosition();
+
+        // Filter out glitches in the encoder reading where it can
+        // sometimes return zero. The motor cannot move from more than
+        // a rotation away to exactly zero in one reading.
+        if (encoderPos == 0 && Math.abs(prevEncoderPosition) > GLITCH_THRESHOLD_ROTATIONS) {
+            encoderPos = prevEncoderPosition;
+        }
+        prevEncoderPosition = encoderPos;
+
+        return encoderPos;
+    }
+
+    /**
+     * Get the raw speed of the motor
+     *
+     * @return speed in motor rotations per minute
+     */
+    public double getRotationsPerMinute() {
+        return encoder.getVelocity();
+    }
+
+    /**
+     * Set the gearing between the motor and the wheel used to convert the motor
+     * rotations to inches
+     *
+     * @param gearRatio
+     *            motor rotations for each rotation of the wheel
+     * @param wheelDiameterInches
+     *            diameter of the wheel in inches
+     */
+    public void setGearing(double gearRatio, double wheelDiameterInches) {
+
+        if (gearRatio <= 0 || wheelDiameterInches <= 0) {
+            System.out.println("Invalid gear ratio (" + gearRatio + ") or wheel diameter ("
+                    + wheelDiameterInches + ") on TCanSparkEncoder. setGearing ignored.");
+            return;
+        }
+
+        this.gearRatio = gearRatio;
+        this.wheelDiameterInches = wheelDiameterInches;
     }
 
 }
@@ -9,7 +9,7 @@ import edu.wpi.first.wpilibj.Counter;
  * <br>
  * Inversion of the counter encoder is not supported
  */
-public class TDioCounterEncoder extends TEncoder {
+public class TDioCounterEncoder extends TDioEncoder {
 
     Counter counter;
 
@@ -39,13 +39,33 @@ public class TDioCounterEncoder extends TEncoder {
     }
 
     @Override
-    public int get() {
-        return super.get(counter.get());
+    protected int getRawCount() {
+        return counter.get();
     }
 
     @Override
-    public double getRate() {
-        return super.getRate(counter.getRate());
+    protected double getRawRate() {
+        return counter.getRate();
+    }
+
+    @Override
+    protected boolean isStopped() {
+        return counter.getStopped();
+    }
+
+    @Override
+    public void setMaxPeriod(double maxPeriod) {
+        counter.setMaxPeriod(maxPeriod);
+    }
+
+    @Override
+    protected void setRawDistancePerPulse(double distancePerPulse) {
+        counter.setDistancePerPulse(distancePerPulse);
+    }
+
+    @Override
+    protected void setRawSamplesToAverage(int samplesToAverage) {
+        counter.setSamplesToAverage(samplesToAverage);
     }
 
 }
@@ -0,0 +1,162 @@
+package com.torontocodingcollective.sensors.encoder;
+
+/**
+ * TDioEncoder is the base for the encoders read by the FPGA on the DIO ports
+ * <p>
+ * The FPGA measures the rate from the period between pulses. This class adds
+ * the rate configuration and the adaptive rate that are common to the DIO
+ * encoders.
+ * <p>
+ * Known implementations: {@link TDioQuadEncoder}, {@link TDioCounterEncoder}
+ */
+public abstract class TDioEncoder extends TEncoder {
+
+    /**
+     * Default number of counts between samples above which the adaptive rate is
+     * calculated from the change in counts
+     */
+    public static final int DEFAULT_ADAPTIVE_COUNT_THRESHOLD = 10;
+
+    private double          distancePerPulse                 = 1.0;
+    private TAdaptiveRate   adaptiveRate                     = null;
+
+    protected TDioEncoder(boolean isInverted) {
+        super(isInverted);
+    }
+
+    @Override
+    public int get() {
+        return super.get(getRawCount());
+    }
+
+    /**
+     * Get the raw count of the FPGA counter
+     *
+     * @return count
+     */
+    protected abstract int getRawCount();
+
+    /**
+     * Get the raw rate measured by the FPGA from the pulse period
+     *
+     * @return rate in distance/second
+     */
+    protected abstract double getRawRate();
+
+    @Override
+    public double getRate() {
+
+        if (isStopped()) {
+            return super.getRate(0);
+        }
+
+        double rate = getRawRate();
+
+        if (adaptiveRate != null) {
+            rate = adaptiveRate.getRate(getRawCount(), rate, distancePerPulse);
+        }
+
+        return super.getRate(rate);
+    }
+
+    /**
+     * Indicates whether the FPGA counter is stopped
+     *
+     * @return {@code true} if the period between pulses is longer than the max
+     *         period, {@code false} otherwise
+     */
+    protected abstract boolean isStopped();
+
+    /**
+     * Use the adaptive rate with the default count threshold
+     * <p>
+     * The rate is measured from the pulse period at low speeds, and from the
+     * change in counts at high speeds when there are at least
+     * {@link #DEFAULT_ADAPTIVE_COUNT_THRESHOLD} counts between samples.
+     *
+     * @param enable
+     *            {@code true} to use the adaptive rate, {@code false} to use the
+     *            period rate only
+     */
+    public void setAdaptiveRate(boolean enable) {
+        adaptiveRate = enable ? new TAdaptiveRate(DEFAULT_ADAPTIVE_COUNT_THRESHOLD) : null;
+    }
+
+    /**
+     * Use the adaptive rate with the specified count threshold
+     *
+     * @param countThreshold
+     *            the number of counts between samples above which the rate is
+     *            calculated from the change in counts
+     */
+    public void setAdaptiveRate(int countThreshold) {
+        adaptiveRate = new TAdaptiveRate(countThreshold);
+    }
+
+    /**
+     * Set the distance per pulse
+     * <p>
+     * By default the distance per pulse is 1.0 so that the rate is in
+     * counts/second. Setting the distance per pulse changes the rate units to
+     * distance/second. The count returned by {@link #get()} is not affected.
+     *
+     * @param distancePerPulse
+     *            distance for each encoder pulse
+     */
+    public void setDistancePerPulse(double distancePerPulse) {
+
+        if (distancePerPulse <= 0) {
+            System.out.println("Invalid distance per pulse (" + distancePerPulse
+                    + ") for " + this.getClass().getSimpleName() + ". setDistancePerPulse ignored");
+            return;
+        }
+
+        this.distancePerPulse = distancePerPulse;
+        setRawDistancePerPulse(distancePerPulse);
+    }
+
+    /**
+     * Set the maximum period between pulses before the encoder is considered
+     * stopped. When the encoder is stopped, the rate is zero.
+     *
+     * @param maxPeriod
+     *            in seconds
+     */
+    public abstract void setMaxPeriod(double maxPeriod);
+
+    /**
+     * Set the distance per pulse on the FPGA counter
+     *
+     * @param distancePerPulse
+     *            distance for each encoder pulse
+     */
+    protected abstract void setRawDistancePerPulse(double distancePerPulse);
+
+    /**
+     * Set the number of pulse periods averaged by the FPGA on the FPGA counter
+     *
+     * @param samplesToAverage
+     *            in the range 1 to 127
+     */
+    protected abstract void setRawSamplesToAverage(int samplesToAverage);
+
+    /**
+     * Set the number of pulse periods averaged by the FPGA to calculate the rate.
+     * <p>
+     * Averaging more periods reduces the noise in the rate at low speeds.
+     *
+     * @param samplesToAverage
+     *            in the range 1 to 127
+     */
+    public void setSamplesToAverage(int samplesToAverage) {
+
+        if (samplesToAverage < 1 || samplesToAverage > 127) {
+            System.out.println("Invalid samples to average (" + samplesToAverage
+                    + ") for " + this.getClass().getSimpleName() + ". setSamplesToAverage ignored");
+            return;
+        }
+
+        setRawSamplesToAverage(samplesToAverage);
+    }
+
+}
@@ -2,7 +2,7 @@ package com.torontocodingcollective.sensors.encoder;
 
 import edu.wpi.first.wpilibj.Encoder;
 
-public class TDioQuadEncoder extends TEncoder {
+public class TDioQuadEncoder extends TDioEncoder {
 
     Encoder encoder;
 
@@ -44,13 +44,33 @@ public class TDioQuadEncoder extends TEncoder {
     }
 
     @Override
-    public int get() {
-        return super.get(encoder.get());
+    protected int getRawCount() {
+        return encoder.get();
     }
 
     @Override
-    public double getRate() {
-        return super.getRate(encoder.getRate());
+    protected double getRawRate() {
+        return encoder.getRate();
+    }
+
+    @Override
+    protected boolean isStopped() {
+        return encoder.getStopped();
+    }
+
+    @Override
+    public void setMaxPeriod(double maxPeriod) {
+        encoder.setMaxPeriod(maxPeriod);
+    }
+
+    @Override
+    protected void setRawDistancePerPulse(double distancePerPulse) {
+        encoder.setDistancePerPulse(distancePerPulse);
+    }
+
+    @Override
+    protected void setRawSamplesToAverage(int samplesToAverage) {
+        encoder.setSamplesToAverage(samplesToAverage);
     }
 
 }
@@ -1,5 +1,11 @@
 package com.torontocodingcollective.sensors.encoder;
 
+import com.torontocodingcollective.sensors.TTimestampedSample;
+import com.torontocodingcollective.sensors.TTimestampedSensor;
+
+import edu.wpi.first.wpilibj.RobotController;
+import edu.wpi.first.wpilibj.Timer;
+
 /**
  * TEncoder class used as the base for all TEncoders
  * <p>
@@ -9,10 +15,12 @@ package com.torontocodingcollective.sensors.encoder;
  * Known implementations: {@link TCanEncoder}, {@link TDioQuadEncoder},
  * {@link TDioCounterEncoder}
  */
-public abstract class TEncoder {
+public abstract class TEncoder implements TTimestampedSensor {
+
+    boolean                    isInverted        = false;
+    double                     offset            = 0;
 
-    boolean isInverted = false;
-    int     offset     = 0;
+    private TVelocityEstimator velocityEstimator = null;
 
     /**
      * TEncoder default constructor
@@ -41,6 +49,29 @@ public abstract class TEncoder {
      * @return int inverted distance
      */
     protected int get(int rawDistance) {
+        return (int) Math.round(getDistance((double) rawDistance));
+    }
+
+    /**
+     * Get the distance of this encoder with full precision
+     * <p>
+     * Encoders that measure fractional counts override this method to return
+     * the distance without rounding. By default the distance is the integer
+     * count returned by {@link #get()}.
+     * 
+     * @return distance in encoder counts
+     */
+    public double getDistance() {
+        return get();
+    }
+
+    /**
+     * Invert the raw distance if required
+     * 
+     * @param rawDistance
+     * @return double inverted distance
+     */
+    protected double getDistance(double rawDistance) {
 
         if (isInverted) {
             rawDistance = -rawDistance;
@@ -52,18 +83,29 @@ public abstract class TEncoder {
     /**
      * Get the rate (speed) of this encoder
      * 
-     * @return speed in encoder counts/second
+     * @return speed in encoder counts per {@link #getRatePeriod()}
      */
     public abstract double getRate();
 
     /**
      * Invert the raw rate if required
+     * <p>
+     * If a velocity estimator is set on this encoder, the raw rate is ignored and
+     * the rate is calculated from the encoder distance in the same units as the
+     * hardware rate.
      * 
      * @param rawRate
      * @return double raw rate inverted if required
      */
     protected double getRate(double rawRate) {
 
+        if (velocityEstimator != null) {
+            // The distance is already inverted. The estimator rate is
+            // in counts/second.
+            return velocityEstimator.update(getDistance(), Timer.getFPGATimestamp())
+                    * getRatePeriod();
+        }
+
         if (isInverted) {
             return -rawRate;
         }
@@ -71,6 +113,39 @@ public abstract class TEncoder {
         return rawRate;
     }
 
+    /**
+     * Get the encoder distance and the time it was read
+     * 
+     * @return {@link TTimestampedSample} with the distance in encoder counts
+     *         {@link #getDistance()}
+     */
+    @Override
+    public TTimestampedSample getSample() {
+        long timestamp = RobotController.getFPGATime();
+        return new TTimestampedSample(getDistance(), timestamp);
+    }
+
+    /**
+     * Get the time period of the rate returned by this encoder
+     * <p>
+     * Encoders that measure the rate in counts per 100ms override this method.
+     * 
+     * @return period in seconds, default 1.0 (counts/second)
+     */
+    public double getRatePeriod() {
+        return 1.0;
+    }
+
+    /**
+     * Get the velocity estimator used by this encoder
+     * 
+     * @return {@link TVelocityEstimator} or {@code null} if the hardware rate is
+     *         used
+     */
+    public TVelocityEstimator getVelocityEstimator() {
+        return velocityEstimator;
+    }
+
     /**
      * Returns whether the current speed controller is 
      * inverted
@@ -91,7 +166,15 @@ public abstract class TEncoder {
 
         // set the offset to the current encoder counts
         // in order to zero the output.
-        offset = -get();
+        offset = -getDistance();
+
+        resetVelocityEstimator();
+    }
+
+    private void resetVelocityEstimator() {
+        if (velocityEstimator != null) {
+            velocityEstimator.reset();
+        }
     }
 
     /**
@@ -102,8 +185,24 @@ public abstract class TEncoder {
      */
     public void set(int encoderCount) {
         offset = 0;
-        offset = -get() + encoderCount;
+        offset = -getDistance() + encoderCount;
 
+        resetVelocityEstimator();
+    }
+
+    /**
+     * Set the velocity estimator used to calculate the rate of this encoder.
+     * <p>
+     * By default, the rate measured by the encoder hardware is used.
+     * 
+     * @param velocityEstimator
+     *            {@link TVelocityEstimator} used to calculate the rate from the
+     *            encoder distance, or {@code null} to use the hardware rate. An
+     *            estimator must not be shared between encoders.
+     */
+    public void setVelocityEstimator(TVelocityEstimator velocityEstimator) {
+        this.velocityEstimator = velocityEstimator;
+        resetVelocityEstimator();
     }
 
     /**
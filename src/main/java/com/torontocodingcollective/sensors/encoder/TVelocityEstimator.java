@@ -0,0 +1,287 @@
+package com.torontocodingcollective.sensors.encoder;
+
+/**
+ * TVelocityEstimator calculates the rate of an encoder from timestamped
+ * position samples.
+ * <p>
+ * The hardware rate of some encoders is measured over a long window or is
+ * truncated, which makes speed control noisy at low speeds. The estimator keeps
+ * the most recent samples in a fixed size ring buffer and calculates the rate
+ * using one of the {@link TVelocityFilterType} filters.
+ * <p>
+ * Samples closer together than {@link #MIN_SAMPLE_PERIOD} are ignored so that
+ * reading the rate more than once in a loop does not add samples.
+ */
+public class TVelocityEstimator {
+
+    public enum TVelocityFilterType {
+        /** Average rate over the samples in the window */
+        MOVING_AVERAGE,
+        /**
+         * Slope at the newest sample of a least squares quadratic fit of the
+         * samples in the window (Savitzky-Golay derivative). This filter has
+         * less lag than the moving average but is more sensitive to noise.
+         */
+        SAVITZKY_GOLAY,
+        /** Alpha-beta tracking filter on the position */
+        ALPHA_BETA
+    }
+
+    /** Minimum time between samples (seconds) */
+    public static final double        MIN_SAMPLE_PERIOD   = 0.005;
+
+    /** Default number of samples in the window */
+    public static final int           DEFAULT_WINDOW_SIZE = 5;
+
+    /** Default alpha-beta filter position gain */
+    public static final double        DEFAULT_ALPHA       = 0.5;
+    /** Default alpha-beta filter velocity gain */
+    public static final double        DEFAULT_BETA        = 0.1;
+
+    private final TVelocityFilterType filterType;
+    private final double[]            positions;
+    private final double[]            times;
+    private final double              alpha;
+    private final double              beta;
+
+    // Index of the next sample in the ring buffer
+    private int                       next                = 0;
+    private int                       count               = 0;
+
+    // Alpha-beta filter state
+    private double                    estimatedPosition   = 0;
+
+    private double                    rate                = 0;
+
+    /**
+     * Construct a velocity estimator with the default window size
+     *
+     * @param filterType
+     *            {@link TVelocityFilterType} used to calculate the rate
+     */
+    public TVelocityEstimator(TVelocityFilterType filterType) {
+        this(filterType, DEFAULT_WINDOW_SIZE);
+    }
+
+    /**
+     * Construct a velocity estimator
+     *
+     * @param filterType
+     *            {@link TVelocityFilterType} used to calculate the rate
+     * @param windowSize
+     *            number of samples used to calculate the rate. The minimum window
+     *            size is 2 for a moving average and 3 for a Savitzky-Golay
+     *            filter. The window size is not used by the alpha-beta filter.
+     */
+    public TVelocityEstimator(TVelocityFilterType filterType, int windowSize) {
+        this(filterType, windowSize, DEFAULT_ALPHA, DEFAULT_BETA);
+    }
+
+    /**
+     * Construct an alpha-beta velocity estimator
+     *
+     * @param alpha
+     *            position gain in the range 0 < alpha <= 1.0
+     * @param beta
+     *            velocity gain in the range 0 < beta <= 2.0
+     */
+    public TVelocityEstimator(double alpha, double beta) {
+        this(TVelocityFilterType.ALPHA_BETA, 2, alpha, beta);
+    }
+
+    private TVelocityEstimator(TVelocityFilterType filterType, int windowSize, double alpha, double beta) {
+
+        if (filterType == null) {
+            System.out.println("Invalid velocity filter type (null). "
+                    + TVelocityFilterType.MOVING_AVERAGE + " used.");
+            filterType = TVelocityFilterType.MOVING_AVERAGE;
+        }
+
+        int minWindowSize = filterType == TVelocityFilterType.SAVITZKY_GOLAY ? 3 : 2;
+
+        if (windowSize < minWindowSize) {
+            System.out.println("Invalid velocity window size (" + windowSize + ") for "
+                    + filterType + ". Window size " + minWindowSize + " used.");
+            windowSize = minWindowSize;
+        }
+
+        if (alpha <= 0 || alpha > 1.0 || beta <= 0 || beta > 2.0) {
+            System.out.println("Invalid alpha-beta gains (" + alpha + ", " + beta
+                    + "). Default values used.");
+            alpha = DEFAULT_ALPHA;
+            beta = DEFAULT_BETA;
+        }
+
+        this.filterType = filterType;
+        this.positions = new double[windowSize];
+        this.times = new double[windowSize];
+        this.alpha = alpha;
+        this.beta = beta;
+    }
+
+    /**
+     * Get the last calculated rate
+     *
+     * @return rate in position units/second
+     */
+    public double getRate() {
+        return rate;
+    }
+
+    /**
+     * Get the filter type of this estimator
+     *
+     * @return {@link TVelocityFilterType}
+     */
+    public TVelocityFilterType getFilterType() {
+        return filterType;
+    }
+
+    /**
+     * Clear all samples and set the rate to zero.
+     * <p>
+     * The estimator should be reset whenever the position is set to a new value,
+     * for example when the encoder is reset.
+     */
+    public void reset() {
+        next = 0;
+        count = 0;
+        rate = 0;
+    }
+
+    /**
+     * Add a position sample and calculate the new rate
+     *
+     * @param position
+     *            of the encoder
+     * @param timestamp
+     *            of the position in seconds
+     * @return rate in position units/second
+     */
+    public double update(double position, double timestamp) {
+
+        if (count > 0) {
+
+            double lastTime = times[index(count - 1)];
+
+            if (timestamp - lastTime < MIN_SAMPLE_PERIOD) {
+                return rate;
+            }
+        }
+
+        if (filterType == TVelocityFilterType.ALPHA_BETA) {
+            updateAlphaBeta(position, timestamp);
+        }
+
+        positions[next] = position;
+        times[next] = timestamp;
+        next = (next + 1) % positions.length;
+        count = Math.min(count + 1, positions.length);
+
+        switch (filterType) {
+
+        case MOVING_AVERAGE:
+            rate = calcMovingAverage();
+            break;
+
+        case SAVITZKY_GOLAY:
+            rate = calcSavitzkyGolay();
+            break;
+
+        default:
+            break;
+        }
+
+        return rate;
+    }
+
+    /**
+     * Get the ring buffer index of the sample
+     *
+     * @param sample
+     *            0 for the oldest sample up to count-1 for the newest sample
+     * @return index into the ring buffer
+     */
+    private int index(int sample) {
+        return (next - count + sample + positions.length) % positions.length;
+    }
+
+    private double calcMovingAverage() {
+
+        if (count < 2) {
+            return 0;
+        }
+
+        int oldest = index(0);
+        int newest = index(count - 1);
+
+        return (positions[newest] - positions[oldest]) / (times[newest] - times[oldest]);
+    }
+
+    private double calcSavitzkyGolay() {
+
+        // Not enough samples for a quadratic fit
+        if (count < 3) {
+            return calcMovingAverage();
+        }
+
+        // Fit p = a + b*t + c*t^2 using times and positions relative to the
+        // newest sample. The slope at the newest sample is then b.
+        int newest = index(count - 1);
+
+        double s1 = 0, s2 = 0, s3 = 0, s4 = 0;
+        double sp = 0, stp = 0, st2p = 0;
+
+        for (int i = 0; i < count; i++) {
+
+            int k = index(i);
+
+            double t = times[k] - times[newest];
+            double p = positions[k] - positions[newest];
+            double t2 = t * t;
+
+            s1 += t;
+            s2 += t2;
+            s3 += t2 * t;
+            s4 += t2 * t2;
+            sp += p;
+            stp += t * p;
+            st2p += t2 * p;
+        }
+
+        double s0 = count;
+
+        // Solve the normal equations for b using Cramer's rule
+        double det = s0 * (s2 * s4 - s3 * s3) - s1 * (s1 * s4 - s3 * s2) + s2 * (s1 * s3 - s2 * s2);
+
+        if (det == 0) {
+            return calcMovingAverage();
+        }
+
+        double detB = s0 * (stp * s4 - s3 * st2p) - sp * (s1 * s4 - s3 * s2) + s2 * (s1 * st2p - stp * s2);
+
+        return detB / det;
+    }
+
+    private void updateAlphaBeta(double position, double timestamp) {
+
+        if (count == 0) {
+            estimatedPosition = position;
+            rate = 0;
+            return;
+        }
+
+        double dt = timestamp - times[index(count - 1)];
+
+        double predictedPosition = estimatedPosition + rate * dt;
+        double residual = position - predictedPosition;
+
+        estimatedPosition = predictedPosition + alpha * residual;
+        rate += beta * residual / dt;
+    }
+
+    @Override
+    public String toString() {
+        return filterType.toString() + "(" + positions.length + ")";
+    }
+}
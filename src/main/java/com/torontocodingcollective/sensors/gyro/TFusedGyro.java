@@ -0,0 +1,245 @@
+package com.torontocodingcollective.sensors.gyro;
+
+import com.torontocodingcollective.sensors.encoder.TEncoder;
+
+import edu.wpi.first.wpilibj.Timer;
+
+/**
+ * TFusedGyro combines a gyro with the left and right drive encoders to estimate
+ * the heading of the robot.
+ * <p>
+ * Gyros drift slowly over time, and the heading calculated from the difference
+ * in the left and right encoders does not drift but is wrong when the wheels
+ * slip. This class uses a complementary filter to blend the change in heading
+ * from both sources on each update. When the two sources disagree by more than
+ * the slip threshold, the wheels are assumed to be slipping and only the gyro is
+ * used.
+ * <p>
+ * The fused heading is updated whenever the angle is read, at most once every
+ * {@link #MIN_UPDATE_PERIOD} seconds.
+ */
+public class TFusedGyro extends TGyro {
+
+    /** Minimum time between filter updates (seconds) */
+    public static final double  MIN_UPDATE_PERIOD      = 0.010;
+
+    /** Default weight given to the encoder heading when the wheels are not slipping */
+    public static final double  DEFAULT_ENCODER_WEIGHT = 0.8;
+
+    /** Default difference in rotation rate that indicates wheel slip (degrees/sec) */
+    public static final double  DEFAULT_SLIP_RATE      = 20.0;
+
+    private final TGyro         gyro;
+    private final TEncoder      leftEncoder;
+    private final TEncoder      rightEncoder;
+    private final double        encoderCountsPerInch;
+    private final double        trackWidthInches;
+
+    private double              encoderWeight          = DEFAULT_ENCODER_WEIGHT;
+    private double              slipRate               = DEFAULT_SLIP_RATE;
+
+    private double              fusedAngle             = 0;
+    private double              lastGyroAngle;
+    private double              lastLeftCount;
+    private double              lastRightCount;
+    private double              lastUpdateTime;
+    private boolean             slipping               = false;
+
+    /**
+     * Construct a fused gyro
+     *
+     * @param gyro
+     *            that extends {@link TGyro}. The inversion of the gyro is set on
+     *            the gyro.
+     * @param leftEncoder
+     *            encoder for the left side of the drive
+     * @param rightEncoder
+     *            encoder for the right side of the drive
+     * @param encoderCountsPerInch
+     *            of the drive encoders
+     * @param trackWidthInches
+     *            the distance between the left and right wheels
+     */
+    public TFusedGyro(TGyro gyro, TEncoder leftEncoder, TEncoder rightEncoder,
+            double encoderCountsPerInch, double trackWidthInches) {
+
+        super(false);
+
+        this.gyro = gyro;
+        this.leftEncoder = leftEncoder;
+        this.rightEncoder = rightEncoder;
+        this.encoderCountsPerInch = encoderCountsPerInch;
+        this.trackWidthInches = trackWidthInches;
+
+        if (encoderCountsPerInch <= 0 || trackWidthInches <= 0) {
+            System.out.println("Invalid encoder counts per inch (" + encoderCountsPerInch
+                    + ") or track width (" + trackWidthInches + ") for TFusedGyro. "
+                    + "Only the gyro will be used.");
+            this.encoderWeight = 0;
+        }
+
+        this.fusedAngle = gyro.getAngle();
+
+        resetLastReadings();
+    }
+
+    @Override
+    public void calibrate() {
+        gyro.calibrate();
+        super.setGyroAngle(0);
+    }
+
+    @Override
+    public double getAngle() {
+        update();
+        return super.getAngle(fusedAngle);
+    }
+
+    /**
+     * Get the rotation rate from the encoders
+     *
+     * @return rate in degrees/second calculated from the encoder rates
+     */
+    public double getEncoderRate() {
+
+        if (encoderWeight == 0) {
+            return 0;
+        }
+
+        // Convert the encoder rates to inches/second
+        double differenceInches = (leftEncoder.getRate() / leftEncoder.getRatePeriod()
+                - rightEncoder.getRate() / rightEncoder.getRatePeriod()) / encoderCountsPerInch;
+
+        return Math.toDegrees(differenceInches / trackWidthInches);
+    }
+
+    /**
+     * Get the gyro that is fused with the encoders
+     * <p>
+     * The drift of the fused heading is the drift of this gyro, so the drift
+     * rate should be estimated and set on this gyro.
+     *
+     * @return TGyro
+     */
+    public TGyro getGyro() {
+        return gyro;
+    }
+
+    @Override
+    public double getPitch() {
+        return gyro.getPitch();
+    }
+
+    @Override
+    public double getRate() {
+        return super.getRate(gyro.getRate());
+    }
+
+    /**
+     * Indicates whether the wheels were slipping on the last update
+     *
+     * @return {@code true} if the encoder heading was ignored because the wheels
+     *         were slipping, {@code false} otherwise
+     */
+    public boolean isSlipping() {
+        return slipping;
+    }
+
+    @Override
+    public void reset() {
+        super.setGyroAngle(0);
+    }
+
+    /**
+     * Set the weight given to the encoder heading
+     *
+     * @param encoderWeight
+     *            in the range 0 (gyro only) to 1.0 (encoders only when not
+     *            slipping). The default is {@link #DEFAULT_ENCODER_WEIGHT}
+     */
+    public void setEncoderWeight(double encoderWeight) {
+        if (encoderWeight < 0 || encoderWeight > 1.0) {
+            System.out.println("Invalid encoder weight (" + encoderWeight + "). setEncoderWeight ignored");
+            return;
+        }
+        this.encoderWeight = encoderWeight;
+    }
+
+    /**
+     * Set the difference in rotation rate between the gyro and the encoders that
+     * indicates the wheels are slipping
+     *
+     * @param slipRate
+     *            in degrees/second. The default is {@link #DEFAULT_SLIP_RATE}
+     */
+    public void setSlipRate(double slipRate) {
+        this.slipRate = Math.abs(slipRate);
+    }
+
+    @Override
+    public boolean supportsPitch() {
+        return gyro.supportsPitch();
+    }
+
+    private void resetLastReadings() {
+        lastGyroAngle = gyro.getAngle();
+        lastLeftCount = leftEncoder.getDistance();
+        lastRightCount = rightEncoder.getDistance();
+        lastUpdateTime = Timer.getFPGATimestamp();
+    }
+
+    /**
+     * Update the fused heading with the change in the gyro and encoder headings
+     * since the last update.
+     */
+    private void update() {
+
+        double time = Timer.getFPGATimestamp();
+        double dt = time - lastUpdateTime;
+
+        if (dt < MIN_UPDATE_PERIOD) {
+            return;
+        }
+
+        // Gyro change in heading normalized to -180 to +180
+        double gyroAngle = gyro.getAngle();
+        double gyroDelta = gyroAngle - lastGyroAngle;
+
+        if (gyroDelta > 180) {
+            gyroDelta -= 360.0;
+        }
+        if (gyroDelta < -180) {
+            gyroDelta += 360.0;
+        }
+
+        // Encoder change in heading. When turning clockwise
+        // the left side travels farther than the right.
+        double leftCount = leftEncoder.getDistance();
+        double rightCount = rightEncoder.getDistance();
+
+        double fusedDelta = gyroDelta;
+
+        if (encoderWeight > 0) {
+
+            double differenceInches = ((leftCount - lastLeftCount) - (rightCount - lastRightCount))
+                    / encoderCountsPerInch;
+
+            double encoderDelta = Math.toDegrees(differenceInches / trackWidthInches);
+
+            // If the sources disagree, the wheels are slipping
+            // (or the encoders were reset), so use only the gyro.
+            slipping = Math.abs(gyroDelta - encoderDelta) > slipRate * dt;
+
+            if (!slipping) {
+                fusedDelta = encoderWeight * encoderDelta + (1.0 - encoderWeight) * gyroDelta;
+            }
+        }
+
+        fusedAngle += fusedDelta;
+
+        lastGyroAngle = gyroAngle;
+        lastLeftCount = leftCount;
+        lastRightCount = rightCount;
+        lastUpdateTime = time;
+    }
+}
@@ -1,7 +1,11 @@
 package com.torontocodingcollective.sensors.gyro;
 
 import com.torontocodingcollective.TUtil;
+import com.torontocodingcollective.sensors.TTimestampedSample;
+import com.torontocodingcollective.sensors.TTimestampedSensor;
 import edu.wpi.first.wpilibj.GyroBase;
+import edu.wpi.first.wpilibj.RobotController;
+import edu.wpi.first.wpilibj.Timer;
 import edu.wpi.first.wpilibj.interfaces.Gyro;
 
 /**
@@ -13,10 +17,15 @@ import edu.wpi.first.wpilibj.interfaces.Gyro;
  * The TGyro class supports for clarity the methods of {@link Gyro} except for
  * the {@link #free()} method.
  */
-public abstract class TGyro extends GyroBase {
+public abstract class TGyro extends GyroBase implements TTimestampedSensor {
 
     private boolean isInverted;
-    private double  offset = 0;
+    private double  offset          = 0;
+
+    // Drift compensation accumulated from the drift rate
+    private double  driftRate       = 0;
+    private double  driftCorrection = 0;
+    private double  lastDriftTime   = 0;
 
     /**
      * Construct a gyro with the specified inversion
@@ -61,7 +70,32 @@ public abstract class TGyro extends GyroBase {
             rawAngle = -rawAngle;
         }
 
-        return normalizedAngle(rawAngle + offset);
+        return normalizedAngle(rawAngle + offset - getDriftCorrection());
+    }
+
+    /**
+     * Get the accumulated drift correction
+     * 
+     * @return drift correction in degrees
+     */
+    private double getDriftCorrection() {
+
+        if (driftRate != 0) {
+            double time = Timer.getFPGATimestamp();
+            driftCorrection += driftRate * (time - lastDriftTime);
+            lastDriftTime = time;
+        }
+
+        return driftCorrection;
+    }
+
+    /**
+     * Get the drift rate that is being removed from the gyro angle
+     * 
+     * @return drift rate in degrees/second
+     */
+    public double getDriftRate() {
+        return driftRate;
     }
 
     /**
@@ -76,6 +110,19 @@ public abstract class TGyro extends GyroBase {
         return 0;
     }
 
+    /**
+     * Get the gyro angle and the time it was read
+     * <p>
+     * Gyros that know when the angle was measured override this method.
+     * 
+     * @return {@link TTimestampedSample} with the angle 0 <= angle < 360
+     */
+    @Override
+    public TTimestampedSample getSample() {
+        long timestamp = RobotController.getFPGATime();
+        return new TTimestampedSample(getAngle(), timestamp);
+    }
+
     /**
      * Return the rate of change of the angle
      * <p>
@@ -90,15 +137,15 @@ public abstract class TGyro extends GyroBase {
      * Get the gyro rate from the rawRate
      * 
      * @param rawRate
-     * @return rate normalized for inversion
+     * @return rate normalized for inversion with the drift rate removed
      */
     protected double getRate(double rawRate) {
 
         if (isInverted) {
-            return -rawRate;
+            rawRate = -rawRate;
         }
 
-        return rawRate;
+        return rawRate - driftRate;
     }
 
     @Override
@@ -146,6 +193,25 @@ public abstract class TGyro extends GyroBase {
         setGyroAngle(0);
     }
 
+    /**
+     * Set the drift rate to remove from the gyro angle
+     * <p>
+     * The drift rate is typically estimated while the robot is sitting still
+     * using a {@link TGyroBiasEstimator}.
+     * 
+     * @param driftRate
+     *            in degrees/second in the direction of the gyro output. Use 0 to
+     *            stop the drift compensation.
+     */
+    public void setDriftRate(double driftRate) {
+
+        // Accumulate the correction at the previous rate
+        getDriftCorrection();
+
+        this.driftRate = driftRate;
+        this.lastDriftTime = Timer.getFPGATimestamp();
+    }
+
     public void setGyroAngle(double angle) {
 
         // clear the previous offset
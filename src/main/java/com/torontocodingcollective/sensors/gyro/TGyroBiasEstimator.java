@@ -0,0 +1,141 @@
+package com.torontocodingcollective.sensors.gyro;
+
+import edu.wpi.first.wpilibj.Timer;
+
+/**
+ * TGyroBiasEstimator estimates the drift of a gyro while the robot is still.
+ * <p>
+ * The drift of a gyro changes as the gyro warms up, so a calibration on power
+ * up may not be accurate by the start of a match. The estimator measures the
+ * change in the gyro angle while the robot is still, and slowly adjusts the
+ * drift rate of the gyro {@link TGyro#setDriftRate(double)} to remove the
+ * drift.
+ * <p>
+ * Call {@link #update(boolean)} periodically while the robot is disabled, and
+ * call {@link #freeze()} when the robot is enabled so that the drift rate is not
+ * changed while the robot is moving.
+ */
+public class TGyroBiasEstimator {
+
+    /** Time the robot must be still before the drift is measured (seconds) */
+    public static final double SETTLE_TIME   = 1.0;
+
+    /** Time constant of the drift rate estimate (seconds) */
+    public static final double TIME_CONSTANT = 10.0;
+
+    private final TGyro        gyro;
+
+    private boolean            frozen        = false;
+    private boolean            sampling      = false;
+    private double             stillTime     = 0;
+    private double             lastAngle     = 0;
+    private double             lastTime      = 0;
+
+    /**
+     * Construct a bias estimator for the gyro
+     *
+     * @param gyro
+     *            that extends {@link TGyro}
+     */
+    public TGyroBiasEstimator(TGyro gyro) {
+        this.gyro = gyro;
+    }
+
+    /**
+     * Stop updating the drift rate.
+     * <p>
+     * The current drift rate will continue to be removed from the gyro angle.
+     */
+    public void freeze() {
+        frozen = true;
+        sampling = false;
+    }
+
+    /**
+     * Get the estimated drift rate
+     *
+     * @return drift rate in degrees/second
+     */
+    public double getDriftRate() {
+        return gyro.getDriftRate();
+    }
+
+    /**
+     * Indicates whether the estimator is frozen
+     *
+     * @return {@code true} if frozen, {@code false} otherwise
+     */
+    public boolean isFrozen() {
+        return frozen;
+    }
+
+    /**
+     * Allow the drift rate to be updated
+     */
+    public void unfreeze() {
+        frozen = false;
+    }
+
+    /**
+     * Update the drift rate estimate
+     * <p>
+     * This routine should be called periodically while the robot is disabled.
+     *
+     * @param isStill
+     *            {@code true} if the robot is not moving, for example when the
+     *            encoder rates are zero, {@code false} otherwise
+     */
+    public void update(boolean isStill) {
+
+        if (frozen) {
+            return;
+        }
+
+        double time = Timer.getFPGATimestamp();
+
+        if (!isStill) {
+            sampling = false;
+            stillTime = time;
+            return;
+        }
+
+        // Wait for the robot to settle before measuring
+        if (time - stillTime < SETTLE_TIME) {
+            return;
+        }
+
+        double angle = gyro.getAngle();
+
+        if (!sampling) {
+            sampling = true;
+            lastAngle = angle;
+            lastTime = time;
+            return;
+        }
+
+        double dt = time - lastTime;
+
+        if (dt <= 0) {
+            return;
+        }
+
+        double angleDelta = angle - lastAngle;
+
+        if (angleDelta > 180) {
+            angleDelta -= 360.0;
+        }
+        if (angleDelta < -180) {
+            angleDelta += 360.0;
+        }
+
+        // The drift that remains after the current drift correction
+        double residualRate = angleDelta / dt;
+
+        double gain = Math.min(1.0, dt / TIME_CONSTANT);
+
+        gyro.setDriftRate(gyro.getDriftRate() + residualRate * gain);
+
+        lastAngle = angle;
+        lastTime = time;
+    }
+}
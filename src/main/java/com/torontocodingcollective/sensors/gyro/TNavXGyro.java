@@ -1,12 +1,52 @@
 package com.torontocodingcollective.sensors.gyro;
 
+import com.kauailabs.navx.AHRSProtocol.AHRSUpdateBase;
 import com.kauailabs.navx.frc.AHRS;
+import com.kauailabs.navx.frc.ITimestampedDataSubscriber;
+import com.torontocodingcollective.sensors.TTimestampedSample;
 
 import edu.wpi.first.wpilibj.SPI.Port;
+import edu.wpi.first.wpilibj.Timer;
 
+/**
+ * TNavXGyro reads the NavX MXP
+ * <p>
+ * The NavX streams data at up to 200Hz. Each data update is received on the
+ * NavX callback thread and stored with the FPGA time it was received in a ring
+ * buffer. Readers get the latest sample, or the angle interpolated at a
+ * previous time which can be used for latency compensation.
+ * <p>
+ * If no samples have been received recently, the NavX is polled instead.
+ */
 public class TNavXGyro extends TGyro {
 
-    private final AHRS navXGyro;
+    /** Requested NavX update rate */
+    public static final int    DEFAULT_UPDATE_RATE_HZ = 200;
+
+    /** Samples older than this are stale and the NavX is polled (seconds) */
+    public static final double STALE_SAMPLE_TIME      = 0.1;
+
+    private static final int   BUFFER_SIZE            = 64;
+
+    // Samples searched for interpolation. The rest of the buffer leaves
+    // room for the writer to add samples while a reader is searching.
+    private static final int   HISTORY_SIZE           = 48;
+
+    private final AHRS         navXGyro;
+
+    // Ring buffer written only by the NavX callback thread. The write count
+    // is published after each sample is written, and readers check that the
+    // sample was not overwritten while it was being read.
+    private final double[]     sampleTime             = new double[BUFFER_SIZE];
+    private final double[]     sampleAngle            = new double[BUFFER_SIZE];
+    private final double[]     sampleRate             = new double[BUFFER_SIZE];
+    private final double[]     samplePitch            = new double[BUFFER_SIZE];
+    private volatile long      writeCount             = 0;
+
+    // State used only by the callback thread
+    private double             callbackAngle          = 0;
+    private double             lastYaw                = 0;
+    private long               lastSensorTimestamp    = 0;
 
     public TNavXGyro() {
         this(false);
@@ -14,7 +54,17 @@ public class TNavXGyro extends TGyro {
 
     public TNavXGyro(boolean inverted) {
         super(inverted);
-        this.navXGyro = new AHRS(Port.kMXP);
+        this.navXGyro = new AHRS(Port.kMXP, (byte) DEFAULT_UPDATE_RATE_HZ);
+
+        if (!navXGyro.registerCallback(new ITimestampedDataSubscriber() {
+            @Override
+            public void timestampedDataReceived(long systemTimestamp, long sensorTimestamp,
+                    AHRSUpdateBase sensorData, Object context) {
+                addSample(sensorTimestamp, sensorData);
+            }
+        }, null)) {
+            System.out.println("Could not register the NavX callback. The NavX will be polled.");
+        }
     }
 
     @Override
@@ -24,17 +74,145 @@ public class TNavXGyro extends TGyro {
 
     @Override
     public double getAngle() {
-        return super.getAngle(navXGyro.getAngle());
+
+        long count = writeCount;
+
+        if (!isSampleCurrent(count)) {
+            return super.getAngle(navXGyro.getAngle());
+        }
+
+        return super.getAngle(readSample(sampleAngle, count, 1));
+    }
+
+    /**
+     * Get the angle at a previous time
+     * <p>
+     * The angle is interpolated between the samples on either side of the time.
+     * This can be used to compensate for latency, for example to find the heading
+     * of the robot when a camera image was taken.
+     *
+     * @param timestamp
+     *            FPGA time in seconds
+     * @return angle 0 <= angle < 360 at the specified time, or the current angle
+     *         if the time is not in the sample buffer
+     */
+    public double getAngleAt(double timestamp) {
+
+        while (true) {
+
+            long count = writeCount;
+
+            if (!isSampleCurrent(count)) {
+                return getAngle();
+            }
+
+            int samples = (int) Math.min(count, HISTORY_SIZE);
+
+            double angle = Double.NaN;
+
+            // Search back from the newest sample
+            for (int i = 1; i < samples; i++) {
+
+                int newer = (int) ((count - i) % BUFFER_SIZE);
+                int older = (int) ((count - i - 1) % BUFFER_SIZE);
+
+                if (sampleTime[older] <= timestamp) {
+
+                    double t0 = sampleTime[older];
+                    double t1 = sampleTime[newer];
+
+                    if (t1 <= t0 || timestamp >= t1) {
+                        angle = sampleAngle[newer];
+                    } else {
+                        double fraction = (timestamp - t0) / (t1 - t0);
+                        angle = sampleAngle[older] + (sampleAngle[newer] - sampleAngle[older]) * fraction;
+                    }
+                    break;
+                }
+            }
+
+            // Retry if the samples were overwritten while searching
+            if (writeCount - count >= BUFFER_SIZE - samples) {
+                continue;
+            }
+
+            if (Double.isNaN(angle)) {
+                return getAngle();
+            }
+
+            return super.getAngle(angle);
+        }
     }
 
     @Override
     public double getPitch() {
-        return navXGyro.getRoll();
+
+        long count = writeCount;
+
+        if (!isSampleCurrent(count)) {
+            return navXGyro.getRoll();
+        }
+
+        return readSample(samplePitch, count, 1);
     }
 
     @Override
     public double getRate() {
-        return super.getRate(navXGyro.getRate());
+
+        long count = writeCount;
+
+        if (!isSampleCurrent(count)) {
+            return super.getRate(navXGyro.getRate());
+        }
+
+        return super.getRate(readSample(sampleRate, count, 1));
+    }
+
+    /**
+     * Get the angle and the time the angle was received from the NavX
+     * 
+     * @return {@link TTimestampedSample} with the angle 0 <= angle < 360
+     */
+    @Override
+    public TTimestampedSample getSample() {
+
+        while (true) {
+
+            long count = writeCount;
+
+            if (!isSampleCurrent(count)) {
+                return super.getSample();
+            }
+
+            // Read the time and the angle from the same sample
+            int index = (int) ((count - 1) % BUFFER_SIZE);
+
+            double timestamp = sampleTime[index];
+            double angle = sampleAngle[index];
+
+            // Retry if the sample was overwritten while reading
+            if (writeCount - count >= BUFFER_SIZE - 1) {
+                continue;
+            }
+
+            return new TTimestampedSample(super.getAngle(angle), TTimestampedSample.toMicros(timestamp));
+        }
+    }
+
+    /**
+     * Get the FPGA time of the latest sample
+     *
+     * @return time in seconds, or 0 if no samples have been received
+     */
+    public double getSampleTimestamp() {
+
+        long count = writeCount;
+
+        if (count == 0) {
+            return 0;
+        }
+
+        return readSample(sampleTime, count, 1);
     }
 
     @Override
@@ -42,4 +220,91 @@ public class TNavXGyro extends TGyro {
         return true;
     }
 
+    /**
+     * Add a sample to the ring buffer. Called on the NavX callback thread.
+     */
+    private void addSample(long sensorTimestamp, AHRSUpdateBase sensorData) {
+
+        long count = writeCount;
+
+        double yaw = sensorData.yaw;
+        double rate = 0;
+
+        if (count == 0) {
+            // Start from the accumulated angle so that the sampled and
+            // polled angles match
+            callbackAngle = navXGyro.getAngle();
+        } else {
+
+            // Unwrap the yaw which is in the range -180 to 180
+            double yawDelta = yaw - lastYaw;
+
+            if (yawDelta > 180) {
+                yawDelta -= 360.0;
+            }
+            if (yawDelta < -180) {
+                yawDelta += 360.0;
+            }
+
+            callbackAngle += yawDelta;
+
+            long dtMs = sensorTimestamp - lastSensorTimestamp;
+            if (dtMs > 0) {
+                rate = yawDelta * 1000.0 / dtMs;
+            } else {
+                rate = sampleRate[(int) ((count - 1) % BUFFER_SIZE)];
+            }
+        }
+
+        lastYaw = yaw;
+        lastSensorTimestamp = sensorTimestamp;
+
+        int index = (int) (count % BUFFER_SIZE);
+
+        sampleTime[index] = Timer.getFPGATimestamp();
+        sampleAngle[index] = callbackAngle;
+        sampleRate[index] = rate;
+        samplePitch[index] = sensorData.roll;
+
+        // Publish the sample
+        writeCount = count + 1;
+    }
+
+    private boolean isSampleCurrent(long count) {
+
+        if (count == 0) {
+            return false;
+        }
+
+        double age = Timer.getFPGATimestamp() - sampleTime[(int) ((count - 1) % BUFFER_SIZE)];
+
+        return age < STALE_SAMPLE_TIME;
+    }
+
+    /**
+     * Read a value from the ring buffer
+     *
+     * @param buffer
+     *            to read
+     * @param count
+     *            write count when the read started
+     * @param age
+     *            1 for the newest sample
+     * @return value from the buffer
+     */
+    private double readSample(double[] buffer, long count, int age) {
+
+        while (true) {
+
+            double value = buffer[(int) ((count - age) % BUFFER_SIZE)];
+
+            // The buffer is large enough that the sample can only be
+            // overwritten if the reader was stalled for a long time.
+            if (writeCount - count < BUFFER_SIZE - age) {
+                return value;
+            }
+
+            count = writeCount;
+        }
+    }
 }
@@ -1,10 +1,30 @@
 package com.torontocodingcollective.sensors.gyro;
 
 import com.ctre.phoenix.sensors.PigeonIMU;
+import com.ctre.phoenix.sensors.PigeonIMU_StatusFrame;
 
+/**
+ * TPigeonImu reads the CTRE Pigeon IMU.
+ * <p>
+ * The angle is the fused heading of the Pigeon, and the rate is the raw gyro
+ * rate around the z axis. The Pigeon reports angles that increase
+ * counter-clockwise, so the values are negated so that the angle increases
+ * clockwise like all TGyros.
+ * <p>
+ * The status frames used by this class are set to
+ * {@link #STATUS_FRAME_PERIOD_MS} for low latency updates.
+ */
 public class TPigeonImu extends TGyro {
 
-    private final PigeonIMU gyro;
+    /** Period of the heading, yaw/pitch/roll and gyro rate status frames */
+    public static final int  STATUS_FRAME_PERIOD_MS = 10;
+
+    private static final int CAN_TIMEOUT_MS         = 10;
+
+    private final PigeonIMU  gyro;
+
+    private final double[]   yawPitchRoll           = new double[3];
+    private final double[]   rawGyro                = new double[3];
 
     public TPigeonImu(int canId) {
         this(canId, false);
@@ -13,6 +33,13 @@ public class TPigeonImu extends TGyro {
     public TPigeonImu(int canId, boolean isInverted) {
         super(isInverted);
         this.gyro = new PigeonIMU(canId);
+
+        gyro.setStatusFramePeriod(PigeonIMU_StatusFrame.CondStatus_6_SensorFusion,
+                STATUS_FRAME_PERIOD_MS, CAN_TIMEOUT_MS);
+        gyro.setStatusFramePeriod(PigeonIMU_StatusFrame.CondStatus_9_SixDeg_YPR,
+                STATUS_FRAME_PERIOD_MS, CAN_TIMEOUT_MS);
+        gyro.setStatusFramePeriod(PigeonIMU_StatusFrame.BiasedStatus_2_Gyro,
+                STATUS_FRAME_PERIOD_MS, CAN_TIMEOUT_MS);
     }
 
     @Override
@@ -22,15 +49,36 @@ public class TPigeonImu extends TGyro {
 
     @Override
     public double getAngle() {
-        return super.getAngle(gyro.getAbsoluteCompassHeading());
+        // The fused heading increases counter-clockwise
+        return super.getAngle(-gyro.getFusedHeading());
+    }
+
+    @Override
+    public double getPitch() {
+        gyro.getYawPitchRoll(yawPitchRoll);
+        return yawPitchRoll[1];
     }
 
     /**
-     * Pigeon IMU does not support the rate interface so the rate is returned as 0.
+     * Get the rate of rotation around the z axis
+     *
+     * @return rate in degrees/second
      */
     @Override
     public double getRate() {
-        return 0;
+        // The gyro rate is counter-clockwise positive
+        gyro.getRawGyro(rawGyro);
+        return super.getRate(-rawGyro[2]);
+    }
+
+    /**
+     * Return the roll read off the Pigeon
+     *
+     * @return roll in degrees
+     */
+    public double getRoll() {
+        gyro.getYawPitchRoll(yawPitchRoll);
+        return yawPitchRoll[2];
     }
 
     @Override
@@ -38,4 +86,9 @@ public class TPigeonImu extends TGyro {
         super.setGyroAngle(0);
     }
 
+    @Override
+    public boolean supportsPitch() {
+        return true;
+    }
+
 }
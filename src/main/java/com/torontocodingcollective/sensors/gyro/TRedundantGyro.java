@@ -0,0 +1,351 @@
+package com.torontocodingcollective.sensors.gyro;
+
+import java.util.Arrays;
+
+import edu.wpi.first.wpilibj.Timer;
+
+/**
+ * TRedundantGyro combines several gyros and votes out gyros that fail.
+ * <p>
+ * On each update, the change in angle of every healthy gyro is compared to the
+ * median change of all of the healthy gyros. A gyro is faulted if it
+ * <ul>
+ * <li>disagrees with the median rotation rate by more than the rate tolerance,
+ * for example when a gyro is saturated, or</li>
+ * <li>is frozen and does not change while the other gyros are rotating, for
+ * example when a gyro is unplugged.</li>
+ * </ul>
+ * The heading is the average change in angle of the healthy gyros. Faults are
+ * latched until {@link #clearFaults()} is called.
+ * <p>
+ * NOTE: with only two gyros, a disagreement cannot be resolved by voting and
+ * only frozen gyros are faulted. Use three or more gyros for full voting.
+ */
+public class TRedundantGyro extends TGyro {
+
+    /** Minimum time between updates (seconds) */
+    public static final double MIN_UPDATE_PERIOD      = 0.010;
+
+    /** Default difference from the median rotation rate that indicates a fault */
+    public static final double DEFAULT_RATE_TOLERANCE = 30.0;
+
+    /** Rotation rate of the other gyros used to detect a frozen gyro (degrees/sec) */
+    public static final double FROZEN_RATE            = 10.0;
+
+    /** Number of consecutive bad updates before a gyro is faulted */
+    public static final int    FAULT_COUNT            = 5;
+
+    private final TGyro[]      gyros;
+    private final double[]     lastAngle;
+    private final double[]     delta;
+    private final double[]     sortedDelta;
+    private final int[]        badCount;
+    private final boolean[]    faulted;
+
+    private double             rateTolerance          = DEFAULT_RATE_TOLERANCE;
+
+    private double             compositeAngle         = 0;
+    private double             lastUpdateTime;
+
+    /**
+     * Construct a redundant gyro
+     *
+     * @param gyros
+     *            two or more gyros that extend {@link TGyro}. The inversion of
+     *            each gyro is set on the gyro so that all gyros increase in the
+     *            same direction.
+     */
+    public TRedundantGyro(TGyro... gyros) {
+
+        super(false);
+
+        if (gyros.length < 2) {
+            System.out.println("TRedundantGyro requires at least two gyros. " + gyros.length + " specified.");
+        }
+
+        this.gyros = gyros;
+        this.lastAngle = new double[gyros.length];
+        this.delta = new double[gyros.length];
+        this.sortedDelta = new double[gyros.length];
+        this.badCount = new int[gyros.length];
+        this.faulted = new boolean[gyros.length];
+
+        resetLastReadings();
+    }
+
+    @Override
+    public void calibrate() {
+        for (TGyro gyro : gyros) {
+            gyro.calibrate();
+        }
+        resetLastReadings();
+        super.setGyroAngle(0);
+    }
+
+    /**
+     * Clear all gyro faults
+     * <p>
+     * All gyros will be used again until a new fault is detected.
+     */
+    public void clearFaults() {
+        for (int i = 0; i < gyros.length; i++) {
+            faulted[i] = false;
+            badCount[i] = 0;
+        }
+        resetLastReadings();
+    }
+
+    @Override
+    public double getAngle() {
+        update();
+        return super.getAngle(compositeAngle);
+    }
+
+    /**
+     * Get the number of gyros that are not faulted
+     *
+     * @return healthy gyro count
+     */
+    public int getHealthyCount() {
+
+        int count = 0;
+
+        for (boolean fault : faulted) {
+            if (!fault) {
+                count++;
+            }
+        }
+
+        return count;
+    }
+
+    /**
+     * Get a description of the health of the gyros
+     *
+     * @return health description e.g. "2/3 OK (gyro 1 FAULT)"
+     */
+    public String getHealthDesc() {
+
+        StringBuilder sb = new StringBuilder();
+
+        sb.append(getHealthyCount()).append('/').append(gyros.length).append(" OK");
+
+        for (int i = 0; i < gyros.length; i++) {
+            if (faulted[i]) {
+                sb.append(" (gyro ").append(i).append(" FAULT)");
+            }
+        }
+
+        return sb.toString();
+    }
+
+    @Override
+    public double getPitch() {
+
+        for (int i = 0; i < gyros.length; i++) {
+            if (!faulted[i] && gyros[i].supportsPitch()) {
+                return gyros[i].getPitch();
+            }
+        }
+
+        return 0;
+    }
+
+    @Override
+    public double getRate() {
+
+        double totalRate = 0;
+        int count = 0;
+
+        for (int i = 0; i < gyros.length; i++) {
+            if (!faulted[i]) {
+                totalRate += gyros[i].getRate();
+                count++;
+            }
+        }
+
+        if (count == 0) {
+            return 0;
+        }
+
+        return super.getRate(totalRate / count);
+    }
+
+    /**
+     * Indicates whether the gyro is healthy
+     *
+     * @param index
+     *            of the gyro in the order passed on the constructor
+     * @return {@code true} if the gyro is not faulted, {@code false} otherwise
+     */
+    public boolean isHealthy(int index) {
+
+        if (index < 0 || index >= gyros.length) {
+            return false;
+        }
+
+        return !faulted[index];
+    }
+
+    @Override
+    public void reset() {
+        super.setGyroAngle(0);
+    }
+
+    /**
+     * Set the difference from the median rotation rate that indicates a gyro
+     * fault
+     *
+     * @param rateTolerance
+     *            in degrees/second. The default is
+     *            {@link #DEFAULT_RATE_TOLERANCE}
+     */
+    public void setRateTolerance(double rateTolerance) {
+        this.rateTolerance = Math.abs(rateTolerance);
+    }
+
+    @Override
+    public boolean supportsPitch() {
+
+        for (TGyro gyro : gyros) {
+            if (gyro.supportsPitch()) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Get the median of the deltas of the healthy gyros
+     *
+     * @param count
+     *            of healthy gyros
+     * @return median delta
+     */
+    private double getMedianDelta(int count) {
+
+        int n = 0;
+        for (int i = 0; i < gyros.length; i++) {
+            if (!faulted[i]) {
+                sortedDelta[n++] = delta[i];
+            }
+        }
+
+        Arrays.sort(sortedDelta, 0, count);
+
+        if (count % 2 == 1) {
+            return sortedDelta[count / 2];
+        }
+
+        return (sortedDelta[count / 2 - 1] + sortedDelta[count / 2]) / 2.0;
+    }
+
+    private void resetLastReadings() {
+        for (int i = 0; i < gyros.length; i++) {
+            lastAngle[i] = gyros[i].getAngle();
+        }
+        lastUpdateTime = Timer.getFPGATimestamp();
+    }
+
+    /**
+     * Read all of the gyros, vote out any faulted gyros and update the composite
+     * angle with the average change in angle of the healthy gyros.
+     */
+    private void update() {
+
+        double time = Timer.getFPGATimestamp();
+        double dt = time - lastUpdateTime;
+
+        if (dt < MIN_UPDATE_PERIOD) {
+            return;
+        }
+
+        lastUpdateTime = time;
+
+        // Read the change in angle of each gyro
+        for (int i = 0; i < gyros.length; i++) {
+
+            double angle = gyros[i].getAngle();
+            double angleDelta = angle - lastAngle[i];
+
+            if (angleDelta > 180) {
+                angleDelta -= 360.0;
+            }
+            if (angleDelta < -180) {
+                angleDelta += 360.0;
+            }
+
+            delta[i] = angleDelta;
+            lastAngle[i] = angle;
+        }
+
+        int healthyCount = getHealthyCount();
+
+        if (healthyCount == 0) {
+            // Hold the last heading
+            return;
+        }
+
+        // Vote out any gyros that disagree with the median
+        if (healthyCount >= 2) {
+
+            double medianDelta = getMedianDelta(healthyCount);
+            double medianRate = medianDelta / dt;
+
+            for (int i = 0; i < gyros.length; i++) {
+
+                if (faulted[i]) {
+                    continue;
+                }
+
+                double rate = delta[i] / dt;
+
+                boolean frozen = delta[i] == 0 && Math.abs(medianRate) > FROZEN_RATE;
+
+                // With only two gyros, the median is the average, and
+                // both would disagree with it. Only check for frozen gyros.
+                boolean disagrees = healthyCount >= 3 && Math.abs(rate - medianRate) > rateTolerance;
+
+                if (frozen || disagrees) {
+                    badCount[i]++;
+                } else {
+                    badCount[i] = 0;
+                }
+
+                if (badCount[i] >= FAULT_COUNT) {
+                    faulted[i] = true;
+                    System.out.println("Gyro " + i + " (" + gyros[i].getClass().getSimpleName() + ") faulted. "
+                            + (frozen ? "Frozen" : "Rate " + rate + " disagrees with " + medianRate)
+                            + ". " + getHealthDesc());
+                }
+            }
+
+            healthyCount = getHealthyCount();
+
+            if (healthyCount == 0) {
+                return;
+            }
+        }
+
+        // Average the change in angle of the healthy gyros. Gyros
+        // that look bad but are not yet faulted are not used unless
+        // there are no other gyros.
+        double totalDelta = 0;
+        int count = 0;
+
+        for (int i = 0; i < gyros.length; i++) {
+            if (!faulted[i] && badCount[i] == 0) {
+                totalDelta += delta[i];
+                count++;
+            }
+        }
+
+        if (count == 0) {
+            compositeAngle += getMedianDelta(healthyCount);
+            return;
+        }
+
+        compositeAngle += totalDelta / count;
+    }
+}
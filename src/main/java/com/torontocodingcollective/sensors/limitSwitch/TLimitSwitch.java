@@ -1,11 +1,24 @@
 package com.torontocodingcollective.sensors.limitSwitch;
 
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.torontocodingcollective.sensors.TTimestampedSample;
+import com.torontocodingcollective.sensors.TTimestampedSensor;
+import com.torontocodingcollective.speedcontroller.TSpeedController;
+
 import edu.wpi.first.wpilibj.DigitalInput;
+import edu.wpi.first.wpilibj.InterruptHandlerFunction;
+import edu.wpi.first.wpilibj.RobotController;
 
 /**
  * TLimitSwitch implements a limit switch with the supplied default state
+ * <p>
+ * The limit switch can optionally use interrupts
+ * {@link #enableInterrupts(TSpeedController)} to record the FPGA time of each
+ * edge and to stop a speed controller as soon as the limit is reached, instead
+ * of waiting for the next loop to poll the switch.
  */
-public class TLimitSwitch {
+public class TLimitSwitch implements TTimestampedSensor {
 
     public enum DefaultState {
         /** Digital input with {@code true} as the default state */
@@ -14,9 +27,22 @@ public class TLimitSwitch {
         FALSE
     }
 
-    private final boolean     defaultState;
+    // Interrupt mask bits for the rising and falling edges. The HAL sets bit
+    // (index) for a rising edge and bit (8 + index) for a falling edge, where
+    // index is the FPGA interrupt allocated to this switch.
+    private static final int          RISING_EDGE_MASK    = 0x00FF;
+    private static final int          FALLING_EDGE_MASK   = 0xFF00;
+
+    private final boolean             defaultState;
+
+    public final DigitalInput         limitSwitch;
 
-    public final DigitalInput limitSwitch;
+    private boolean                   interruptsEnabled   = false;
+    private volatile TSpeedController stopSpeedController = null;
+
+    private volatile double           limitTimestamp      = 0;
+    private volatile double           releaseTimestamp    = 0;
+    private final AtomicInteger       limitCount          = new AtomicInteger();
 
     /**
      * Normally Open limit switch
@@ -46,4 +72,137 @@ public class TLimitSwitch {
         return limitSwitch.get() != defaultState;
     }
 
+    /**
+     * Stop using interrupts on this limit switch
+     */
+    public void disableInterrupts() {
+
+        if (!interruptsEnabled) {
+            return;
+        }
+
+        limitSwitch.cancelInterrupts();
+        interruptsEnabled = false;
+        stopSpeedController = null;
+    }
+
+    /**
+     * Use interrupts to record the time of each edge of the limit switch
+     * <p>
+     * The edge times are available from {@link #getLimitTimestamp()} and
+     * {@link #getReleaseTimestamp()}.
+     */
+    public void enableInterrupts() {
+        enableInterrupts(null);
+    }
+
+    /**
+     * Use interrupts to record the time of each edge of the limit switch and to
+     * stop the speed controller as soon as the limit is reached.
+     * <p>
+     * The speed controller is stopped once on the edge where the switch reaches
+     * the limit. Commands must still check {@link #atLimit()} so that the motor
+     * is not driven further into the limit on the next loop.
+     *
+     * @param speedController
+     *            to stop when the limit is reached, or {@code null} to only record
+     *            the edge times
+     */
+    public void enableInterrupts(TSpeedController speedController) {
+
+        this.stopSpeedController = speedController;
+
+        if (interruptsEnabled) {
+            return;
+        }
+
+        limitSwitch.requestInterrupts(new InterruptHandlerFunction<Object>() {
+            @Override
+            public void interruptFired(int interruptAssertedMask, Object param) {
+                handleInterrupt(interruptAssertedMask);
+            }
+        });
+
+        limitSwitch.setUpSourceEdge(true, true);
+        limitSwitch.enableInterrupts();
+
+        interruptsEnabled = true;
+    }
+
+    /**
+     * Get the number of times the limit was reached since interrupts were enabled
+     *
+     * @return count of edges into the limit
+     */
+    public int getLimitCount() {
+        return limitCount.get();
+    }
+
+    /**
+     * Get the limit switch state and the time it was read
+     *
+     * @return {@link TTimestampedSample} with the value 1.0 if at the limit, and
+     *         0 otherwise
+     */
+    @Override
+    public TTimestampedSample getSample() {
+        long timestamp = RobotController.getFPGATime();
+        return new TTimestampedSample(atLimit() ? 1.0 : 0, timestamp);
+    }
+
+    /**
+     * Get the time the limit was last reached
+     * <p>
+     * Interrupts must be enabled {@link #enableInterrupts(TSpeedController)}
+     *
+     * @return FPGA time in seconds, or 0 if the limit has not been reached
+     */
+    public double getLimitTimestamp() {
+        return limitTimestamp;
+    }
+
+    /**
+     * Get the time the limit was last released
+     * <p>
+     * Interrupts must be enabled {@link #enableInterrupts(TSpeedController)}
+     *
+     * @return FPGA time in seconds, or 0 if the limit has not been released
+     */
+    public double getReleaseTimestamp() {
+        return releaseTimestamp;
+    }
+
+    /**
+     * Handle an edge interrupt. Called on the interrupt thread.
+     *
+     * @param interruptAssertedMask
+     *            rising and/or falling edge bits
+     */
+    private void handleInterrupt(int interruptAssertedMask) {
+
+        boolean rising = (interruptAssertedMask & RISING_EDGE_MASK) != 0;
+        boolean falling = (interruptAssertedMask & FALLING_EDGE_MASK) != 0;
+
+        // A limit switch with a default state of true reaches
+        // the limit on the falling edge.
+        boolean limitEdge = defaultState ? falling : rising;
+        boolean releaseEdge = defaultState ? rising : falling;
+
+        if (limitEdge) {
+
+            TSpeedController speedController = stopSpeedController;
+
+            if (speedController != null) {
+                speedController.stopMotor();
+            }
+
+            limitTimestamp = defaultState ? limitSwitch.readFallingTimestamp() : limitSwitch.readRisingTimestamp();
+            limitCount.incrementAndGet();
+        }
+
+        if (releaseEdge) {
+            releaseTimestamp = defaultState ? limitSwitch.readRisingTimestamp() : limitSwitch.readFallingTimestamp();
+        }
+    }
+
 }
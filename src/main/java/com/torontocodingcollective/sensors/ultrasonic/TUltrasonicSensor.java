@@ -1,23 +1,78 @@
 package com.torontocodingcollective.sensors.ultrasonic;
 
+import java.util.Arrays;
+
+import com.torontocodingcollective.sensors.TTimestampedSample;
+import com.torontocodingcollective.sensors.TTimestampedSensor;
+
+import edu.wpi.first.hal.AccumulatorResult;
 import edu.wpi.first.wpilibj.AnalogInput;
+import edu.wpi.first.wpilibj.Timer;
+
+/**
+ * TUltrasonicSensor reads an analog ultrasonic distance sensor
+ * <p>
+ * On the analog inputs that have a hardware accumulator (channels 0 and 1),
+ * each sample is the average of all of the oversampled readings accumulated
+ * since the previous sample. On the other channels, the averaged voltage of
+ * the analog input is used. A running median of the last {@link #MEDIAN_SIZE}
+ * samples is used to reject spikes. The voltage is converted to a distance
+ * using a piecewise linear calibration table.
+ * <p>
+ * A new sample is taken when the distance is read, at most once every
+ * {@link #MIN_SAMPLE_PERIOD} seconds.
+ */
+public class TUltrasonicSensor implements TTimestampedSensor {
+
+    /** Number of samples in the running median */
+    public static final int         MEDIAN_SIZE          = 5;
 
-public class TUltrasonicSensor {
+    /** Minimum time between samples (seconds) */
+    public static final double      MIN_SAMPLE_PERIOD    = 0.010;
 
-    private double            v40;            // Use this voltage to determine "far" and "close" distance
+    // Hardware oversampling (2^bits samples) of the accumulated readings
+    private static final int        OVERSAMPLE_BITS      = 4;
+    // Hardware averaging (2^bits samples) when there is no accumulator
+    private static final int        AVERAGE_BITS         = 4;
 
-    double                    m1, m2, b1, b2; // slope and b values for two different equations
+    private final AnalogInput       analogInput;
+    private final boolean           useAccumulator;
+    private final AccumulatorResult accumulatorResult    = new AccumulatorResult();
 
-    private final AnalogInput analogInput;
+    private long                    lastAccumulatorValue = 0;
+    private long                    lastAccumulatorCount = 0;
+
+    // Calibration table in increasing voltage order
+    private double[]                calVoltages          = null;
+    private double[]                calDistances         = null;
+
+    // Running median of the last samples
+    private final double[]          samples              = new double[MEDIAN_SIZE];
+    private final double[]          sortedSamples        = new double[MEDIAN_SIZE];
+    private int                     nextSample           = 0;
+    private int                     sampleCount          = 0;
+
+    private double                  medianVoltage        = 0;
+    private double                  sampleTimestamp      = 0;
 
     public TUltrasonicSensor(int analogInputPort) {
+
         analogInput = new AnalogInput(analogInputPort);
+        useAccumulator = analogInput.isAccumulatorChannel();
+
+        if (useAccumulator) {
+            // The accumulator sums the oversampled readings
+            analogInput.setOversampleBits(OVERSAMPLE_BITS);
+            analogInput.setAverageBits(0);
+            analogInput.initAccumulator();
+        } else {
+            analogInput.setAverageBits(AVERAGE_BITS);
+        }
     }
 
     /**
-     * Calibrate the sensor by using two y=mx+b equations so that given a voltage,
-     * we can determine the distance as voltage depends on the distance
-     * 
+     * Calibrate the sensor using three points
+     *
      * @param v20
      *            voltage at a distance of 20 inches
      * @param v40
@@ -26,40 +81,152 @@ public class TUltrasonicSensor {
      *            voltage at a distance of 80 inches
      */
     public void calibrate(double v20, double v40, double v80) {
-        this.v40 = v40;
+        calibrate(new double[] { v20, v40, v80 }, new double[] { 20.0, 40.0, 80.0 });
+    }
+
+    /**
+     * Calibrate the sensor using a table of voltages and distances
+     * <p>
+     * The distance is interpolated linearly between the calibration points, and
+     * extrapolated using the first and last segments outside the table.
+     *
+     * @param voltages
+     *            at each calibration distance in increasing order. At least two
+     *            points are required.
+     * @param distances
+     *            in inches for each voltage
+     */
+    public void calibrate(double[] voltages, double[] distances) {
 
-        // calculating m1, b1 for voltage < v40
-        m1 = (40.0 - 20.0) / (v40 - v20);
-        b1 = 20.0 - (m1 * v20);
+        if (voltages == null || distances == null || voltages.length < 2 || voltages.length != distances.length) {
+            System.out.println("Invalid ultrasonic calibration table. Calibration ignored.");
+            return;
+        }
+
+        for (int i = 1; i < voltages.length; i++) {
+            if (voltages[i] <= voltages[i - 1]) {
+                System.out.println("Ultrasonic calibration voltages must be increasing. Calibration ignored.");
+                return;
+            }
+        }
 
-        // calculating m2, b2 for voltage > v40
-        m2 = (80 - 40) / (v80 - v40);
-        b2 = 40.0 - (m2 * v40);
+        this.calVoltages = voltages.clone();
+        this.calDistances = distances.clone();
     }
 
     public double getRawVoltage() {
     	return analogInput.getVoltage();
     }
-    
+
     /***
      * Get the distance in inches from the back face of the Ultrasonic sensor
-     * 
-     * @return double distance in inches
+     *
+     * @return double distance in inches, or 0 if the sensor is not calibrated
      */
     public double getDistance() {
 
-        double distance = 0;
-        double voltage = analogInput.getVoltage();
+        update();
 
-        // The voltage is not really linear, so for far and close distance we have two
-        // equations
-        if (voltage < v40) {
-            distance = m1 * voltage + b1;
-        } else {
-            distance = m2 * voltage + b2;
+        if (calVoltages == null) {
+            return 0;
+        }
+
+        // Find the calibration segment for the voltage. Voltages outside
+        // the table use the first or last segment.
+        int segment = 0;
+
+        while (segment < calVoltages.length - 2 && medianVoltage > calVoltages[segment + 1]) {
+            segment++;
         }
 
-        // return the distance
-        return distance;
+        double v0 = calVoltages[segment];
+        double v1 = calVoltages[segment + 1];
+        double d0 = calDistances[segment];
+        double d1 = calDistances[segment + 1];
+
+        return d0 + (d1 - d0) * (medianVoltage - v0) / (v1 - v0);
+    }
+
+    /**
+     * Get the filtered voltage
+     *
+     * @return median of the averaged voltage samples
+     */
+    public double getFilteredVoltage() {
+        update();
+        return medianVoltage;
+    }
+
+    /**
+     * Get the distance and the time of the latest sample
+     *
+     * @return {@link TTimestampedSample} with the distance in inches
+     */
+    @Override
+    public TTimestampedSample getSample() {
+        double distance = getDistance();
+        return new TTimestampedSample(distance, TTimestampedSample.toMicros(sampleTimestamp));
+    }
+
+    /**
+     * Get the FPGA time of the latest sample
+     *
+     * @return time in seconds, or 0 if no samples have been taken
+     */
+    public double getSampleTimestamp() {
+        return sampleTimestamp;
+    }
+
+    /**
+     * Get the average voltage since the last sample
+     *
+     * @return the average of the accumulated readings, or the averaged voltage
+     *         of the analog input if there is no accumulator or no new readings
+     */
+    private double getAveragedVoltage() {
+
+        if (!useAccumulator) {
+            return analogInput.getAverageVoltage();
+        }
+
+        // Read the value and the count together
+        analogInput.getAccumulatorOutput(accumulatorResult);
+
+        long value = accumulatorResult.value - lastAccumulatorValue;
+        long count = accumulatorResult.count - lastAccumulatorCount;
+
+        lastAccumulatorValue = accumulatorResult.value;
+        lastAccumulatorCount = accumulatorResult.count;
+
+        if (count <= 0) {
+            return analogInput.getAverageVoltage();
+        }
+
+        // Convert the average oversampled reading to volts
+        double averageValue = (double) value / count / (1 << OVERSAMPLE_BITS);
+
+        return analogInput.getLSBWeight() * 1.0e-9 * averageValue - analogInput.getOffset() * 1.0e-9;
+    }
+
+    /**
+     * Take a new sample and update the running median
+     */
+    private void update() {
+
+        double time = Timer.getFPGATimestamp();
+
+        if (sampleCount > 0 && time - sampleTimestamp < MIN_SAMPLE_PERIOD) {
+            return;
+        }
+
+        samples[nextSample] = getAveragedVoltage();
+        nextSample = (nextSample + 1) % MEDIAN_SIZE;
+        sampleCount = Math.min(sampleCount + 1, MEDIAN_SIZE);
+        sampleTimestamp = time;
+
+        System.arraycopy(samples, 0, sortedSamples, 0, MEDIAN_SIZE);
+        Arrays.sort(sortedSamples, 0, sampleCount);
+
+        medianVoltage = sortedSamples[sampleCount / 2];
     }
 }
@@ -0,0 +1,138 @@
+package com.torontocodingcollective.speedcontroller;
+
+import com.torontocodingcollective.sensors.encoder.TEncoder;
+import com.torontocodingcollective.speedcontroller.TCanSpeedController.TCanSpeedControllerType;
+import com.torontocodingcollective.speedcontroller.TCanStatusFrames.TCanStatusFrameRole;
+import com.torontocodingcollective.speedcontroller.TSpeedController.TNeutralMode;
+
+/**
+ * TCanDevice is a single motor controller on the CAN bus used by a
+ * {@link TCanSpeedController}.
+ * <p>
+ * The devices are created by a {@link TCanDeviceFactory}. On the robot the
+ * devices are CTRE or REV motor controllers, and a {@link TVirtualCanDevice}
+ * can be used to run the CAN speed controller code without a CAN bus.
+ */
+public interface TCanDevice {
+
+    /**
+     * Clear the sticky faults
+     */
+    void clearStickyFaults();
+
+    /**
+     * Disable voltage compensation
+     */
+    void disableVoltageCompensation();
+
+    /**
+     * Enable voltage compensation
+     *
+     * @param nominalVoltage
+     *            voltage applied at an output of 1.0
+     */
+    void enableVoltageCompensation(double nominalVoltage);
+
+    /**
+     * Follow the output of the leader in hardware
+     *
+     * @param leader
+     *            device to follow
+     * @return {@code true} if the device is following the leader, {@code false}
+     *         if this device cannot follow the leader and the output must be set
+     *         on this device
+     */
+    boolean follow(TCanDevice leader);
+
+    /**
+     * Get the bus voltage
+     *
+     * @return voltage at the input of the device
+     */
+    double getBusVoltage();
+
+    /**
+     * Get the type of the device
+     *
+     * @return {@link TCanSpeedControllerType}
+     */
+    TCanSpeedControllerType getControllerType();
+
+    /**
+     * Get the CAN address of the device
+     *
+     * @return CAN address
+     */
+    int getDeviceId();
+
+    /**
+     * Get the encoder attached to this device
+     *
+     * @param isInverted
+     *            {@code true} if the encoder is inverted, {@code false} otherwise
+     * @return TEncoder attached to this device, or {@code null} if the device
+     *         does not support an attached encoder
+     */
+    TEncoder getEncoder(boolean isInverted);
+
+    /**
+     * Get the output current
+     *
+     * @return current in Amps
+     */
+    double getOutputCurrent();
+
+    /**
+     * Get the temperature of the device
+     *
+     * @return temperature in degrees C
+     */
+    double getTemperature();
+
+    /**
+     * Indicates whether any sticky faults are set
+     *
+     * @return {@code true} if a sticky fault is set, {@code false} otherwise
+     */
+    boolean hasStickyFault();
+
+    /**
+     * Set the output of the device
+     *
+     * @param output
+     *            -1.0 to 1.0
+     */
+    void set(double output);
+
+    /**
+     * Set the closed loop ramp rate
+     *
+     * @param secondsFromNeutralToFull
+     *            minimum time to ramp from zero to full output
+     */
+    void setClosedLoopRampRate(double secondsFromNeutralToFull);
+
+    /**
+     * Set the neutral mode
+     *
+     * @param neutralMode
+     *            {@link TNeutralMode}
+     */
+    void setNeutralMode(TNeutralMode neutralMode);
+
+    /**
+     * Set the open loop ramp rate
+     *
+     * @param secondsFromNeutralToFull
+     *            minimum time to ramp from zero to full output
+     */
+    void setOpenLoopRampRate(double secondsFromNeutralToFull);
+
+    /**
+     * Set the status frame periods based on the role of the device
+     *
+     * @param role
+     *            {@link TCanStatusFrameRole}
+     */
+    void setStatusFrameRole(TCanStatusFrameRole role);
+}
@@ -0,0 +1,33 @@
+package com.torontocodingcollective.speedcontroller;
+
+import com.torontocodingcollective.speedcontroller.TCanSpeedController.TCanSpeedControllerType;
+
+/**
+ * TCanDeviceFactory creates the {@link TCanDevice} objects used by a
+ * {@link TCanSpeedController}, and supplies the time used to schedule the CAN
+ * writes.
+ * <p>
+ * The factory is set using
+ * {@link TCanSpeedController#setDeviceFactory(TCanDeviceFactory)}. By default
+ * the CTRE and REV motor controllers on the CAN bus are used.
+ */
+public interface TCanDeviceFactory {
+
+    /**
+     * Get the current time
+     *
+     * @return time in seconds
+     */
+    double getTime();
+
+    /**
+     * Create a device at the given CAN address
+     *
+     * @param controllerType
+     *            a valid {@link TCanSpeedControllerType}
+     * @param canAddress
+     *            a valid unique CAN address
+     * @return TCanDevice of the correct type
+     */
+    TCanDevice newDevice(TCanSpeedControllerType controllerType, int canAddress);
+}
@@ -0,0 +1,323 @@
+package com.torontocodingcollective.speedcontroller;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import edu.wpi.first.wpilibj.Notifier;
+import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
+
+/**
+ * TCanHealthMonitor polls the health of all of the {@link TCanSpeedController}
+ * devices in the background.
+ * <p>
+ * The temperature, bus voltage, output current and sticky faults of each
+ * primary and follower device are sampled on a {@link Notifier} thread at a
+ * slow rate so that no calls are added to the main robot loop. The last
+ * {@link #HISTORY_SIZE} samples of each device are kept to detect a rising
+ * temperature or a sustained high current before a motor is damaged.
+ * <p>
+ * The devices are collected when the monitor is started, so the monitor should
+ * be started after all of the subsystems have been constructed. Alerts are
+ * printed when they are first raised and are shown on the SmartDashboard.
+ * <p>
+ * A sticky fault is latched by the monitor and stays in the alerts until it
+ * is acknowledged with {@link #clearStickyFaults()}, which also clears the
+ * sticky faults on the devices. The faults are not cleared automatically so
+ * that they can still be read with the vendor tools after a match.
+ */
+public class TCanHealthMonitor {
+
+    /** Default time between samples (seconds) */
+    public static final double   DEFAULT_PERIOD         = 0.5;
+
+    /** Number of samples kept for each device */
+    public static final int      HISTORY_SIZE           = 20;
+
+    /** Temperature at which an alert is raised (degrees C) */
+    public static final double   TEMPERATURE_WARNING    = 70.0;
+
+    /** Temperature at which the motor is in danger of damage (degrees C) */
+    public static final double   TEMPERATURE_LIMIT      = 85.0;
+
+    /**
+     * An alert is raised if the temperature trend will reach the
+     * {@link #TEMPERATURE_LIMIT} in less than this time (seconds)
+     */
+    public static final double   TEMPERATURE_TREND_TIME = 60.0;
+
+    /** Average current over the sample history at which an alert is raised (A) */
+    public static final double   CURRENT_WARNING        = 40.0;
+
+    /** Bus voltage below which an alert is raised (V) */
+    public static final double   LOW_BUS_VOLTAGE        = 8.0;
+
+    private final double         period;
+    private final Notifier       notifier;
+
+    private final List<Device>   devices                = new ArrayList<Device>();
+
+    private volatile String      alertSummary           = "OK";
+
+    /**
+     * Construct a health monitor that samples at the {@link #DEFAULT_PERIOD}
+     */
+    public TCanHealthMonitor() {
+        this(DEFAULT_PERIOD);
+    }
+
+    /**
+     * Construct a health monitor
+     *
+     * @param period
+     *            time between samples in seconds
+     */
+    public TCanHealthMonitor(double period) {
+
+        if (period <= 0) {
+            System.out.println("Invalid CAN health monitor period " + period + ". Using the default period "
+                    + DEFAULT_PERIOD);
+            period = DEFAULT_PERIOD;
+        }
+
+        this.period = period;
+        this.notifier = new Notifier(new Runnable() {
+            @Override
+            public void run() {
+                update();
+            }
+        });
+    }
+
+    /**
+     * Get a summary of the current alerts
+     *
+     * @return "OK" if there are no alerts, or a list of the alerts
+     */
+    public String getAlertSummary() {
+        return alertSummary;
+    }
+
+    /**
+     * Indicates whether any alerts are raised
+     *
+     * @return {@code true} if no alerts are raised, {@code false} otherwise
+     */
+    public boolean isHealthy() {
+        return "OK".equals(alertSummary);
+    }
+
+    /**
+     * Acknowledge the sticky fault alerts and clear the sticky faults on all of
+     * the devices
+     */
+    public void clearStickyFaults() {
+
+        synchronized (devices) {
+
+            for (Device device : devices) {
+                device.canDevice.clearStickyFaults();
+                device.stickyFault = false;
+            }
+        }
+    }
+
+    /**
+     * Collect all of the {@link TCanSpeedController} devices and start polling
+     */
+    public void start() {
+
+        synchronized (devices) {
+
+            devices.clear();
+
+            for (TCanSpeedController controller : TCanSpeedController.getAllControllers()) {
+                for (TCanDevice canDevice : controller.getDevices()) {
+                    devices.add(new Device(canDevice));
+                }
+            }
+        }
+
+        notifier.startPeriodic(period);
+    }
+
+    /**
+     * Stop polling
+     */
+    public void stop() {
+        notifier.stop();
+    }
+
+    /**
+     * Sample all devices and update the alerts. Called on the notifier thread.
+     */
+    private void update() {
+
+        StringBuilder sb = new StringBuilder();
+
+        synchronized (devices) {
+
+            for (Device device : devices) {
+
+                device.sample();
+
+                String alert = device.getAlert();
+
+                if (alert != null && !alert.equals(device.alert)) {
+                    System.out.println("CAN health alert " + device.name + ": " + alert);
+                }
+                device.alert = alert;
+
+                if (alert != null) {
+                    if (sb.length() > 0) {
+                        sb.append("; ");
+                    }
+                    sb.append(device.name).append(": ").append(alert);
+                }
+
+                SmartDashboard.putNumber(device.name + " Temp",          Math.round(device.getTemperature()));
+                SmartDashboard.putNumber(device.name + " Current",       Math.round(device.getAverageCurrent()));
+                SmartDashboard.putBoolean(device.name + " Sticky Fault", device.stickyFault);
+            }
+        }
+
+        alertSummary = sb.length() == 0 ? "OK" : sb.toString();
+
+        SmartDashboard.putString("CAN Health", alertSummary);
+    }
+
+    /**
+     * Sample history of one CAN device
+     */
+    private class Device {
+
+        private final String     name;
+        private final TCanDevice canDevice;
+
+        private final double[]   temperature = new double[HISTORY_SIZE];
+        private final double[]   current     = new double[HISTORY_SIZE];
+        private int              sampleCount = 0;
+
+        private double           busVoltage  = 0;
+        private boolean          stickyFault = false;
+
+        private String           alert       = null;
+
+        Device(TCanDevice canDevice) {
+            // CTRE and REV devices can use the same CAN address
+            this.name = "CAN " + canDevice.getControllerType() + " " + canDevice.getDeviceId();
+            this.canDevice = canDevice;
+        }
+
+        void sample() {
+
+            int index = sampleCount % HISTORY_SIZE;
+
+            temperature[index] = canDevice.getTemperature();
+            current[index] = canDevice.getOutputCurrent();
+            busVoltage = canDevice.getBusVoltage();
+
+            // Latch the sticky fault until it is acknowledged
+            if (canDevice.hasStickyFault()) {
+                stickyFault = true;
+            }
+
+            sampleCount++;
+        }
+
+        /**
+         * Get the highest priority alert for this device
+         *
+         * @return alert description, or {@code null} if there are no alerts
+         */
+        String getAlert() {
+
+            double temperature = getTemperature();
+
+            if (temperature >= TEMPERATURE_WARNING) {
+                return "temperature " + Math.round(temperature) + "C";
+            }
+
+            // Project the temperature trend once half of the history is filled
+            if (sampleCount >= HISTORY_SIZE / 2) {
+                double temperatureRate = getTemperatureRate();
+                if (temperatureRate > 0
+                        && (TEMPERATURE_LIMIT - temperature) / temperatureRate < TEMPERATURE_TREND_TIME) {
+                    return "temperature rising " + Math.round(temperatureRate * 60) + "C/min";
+                }
+            }
+
+            if (sampleCount >= HISTORY_SIZE && getAverageCurrent() >= CURRENT_WARNING) {
+                return "sustained current " + Math.round(getAverageCurrent()) + "A";
+            }
+
+            if (busVoltage > 0 && busVoltage < LOW_BUS_VOLTAGE) {
+                return "low bus voltage " + Math.round(busVoltage * 10) / 10.0 + "V";
+            }
+
+            if (stickyFault) {
+                return "sticky fault";
+            }
+
+            return null;
+        }
+
+        double getAverageCurrent() {
+
+            int samples = Math.min(sampleCount, HISTORY_SIZE);
+
+            if (samples == 0) {
+                return 0;
+            }
+
+            double total = 0;
+
+            for (int i = 0; i < samples; i++) {
+                total += current[i];
+            }
+
+            return total / samples;
+        }
+
+        double getTemperature() {
+
+            if (sampleCount == 0) {
+                return 0;
+            }
+
+            return temperature[(sampleCount - 1) % HISTORY_SIZE];
+        }
+
+        /**
+         * Get the slope of the temperature history using a least squares fit
+         *
+         * @return temperature rate in degrees C/second
+         */
+        double getTemperatureRate() {
+
+            int samples = Math.min(sampleCount, HISTORY_SIZE);
+
+            if (samples < 2) {
+                return 0;
+            }
+
+            double meanX = (samples - 1) / 2.0;
+            double meanY = 0;
+
+            for (int i = 0; i < samples; i++) {
+                meanY += temperature[(sampleCount - samples + i) % HISTORY_SIZE];
+            }
+            meanY /= samples;
+
+            double sumXY = 0;
+            double sumXX = 0;
+
+            for (int i = 0; i < samples; i++) {
+                double dx = i - meanX;
+                sumXY += dx * (temperature[(sampleCount - samples + i) % HISTORY_SIZE] - meanY);
+                sumXX += dx * dx;
+            }
+
+            return sumXY / sumXX / period;
+        }
+    }
+}
@@ -1,15 +1,17 @@
 package com.torontocodingcollective.speedcontroller;
 
-import com.ctre.phoenix.motorcontrol.ControlMode;
-import com.ctre.phoenix.motorcontrol.can.BaseMotorController;
+import java.util.ArrayList;
+import java.util.List;
+
 import com.ctre.phoenix.motorcontrol.can.TalonSRX;
 import com.ctre.phoenix.motorcontrol.can.VictorSPX;
 import com.revrobotics.CANSparkMax;
 import com.revrobotics.CANSparkMaxLowLevel.MotorType;
 import com.torontocodingcollective.TConst;
-import com.torontocodingcollective.sensors.encoder.TCanEncoder;
-import com.torontocodingcollective.sensors.encoder.TCanSparkEncoder;
 import com.torontocodingcollective.sensors.encoder.TEncoder;
+import com.torontocodingcollective.speedcontroller.TCanStatusFrames.TCanStatusFrameRole;
+
+import edu.wpi.first.wpilibj.Timer;
 
 /**
  * TCanSpeedController controls one or more speed controllers connected to the
@@ -20,6 +22,10 @@ import com.torontocodingcollective.sensors.encoder.TEncoder;
  * <p>
  * Care should be taken to ensure that the speed controllers are properly
  * connected and are all driving the motors in the same direction.
+ * <p>
+ * The devices are created by a {@link TCanDeviceFactory}. By default the CTRE
+ * and REV motor controllers on the CAN bus are used. A
+ * {@link TVirtualCanDeviceFactory} can be set to run without a CAN bus.
  */
 public class TCanSpeedController extends TSpeedController {
 
@@ -35,11 +41,63 @@ public class TCanSpeedController extends TSpeedController {
         SPARK_MAX_BRUSHED
     }
 
-    private final BaseMotorController canCtreSpeedController;
-    private final CANSparkMax         canSparkSpeedController;
-    private final CANSparkMax         canSparkFollowerSpeedController;
+    /**
+     * Output changes smaller than this tolerance are not sent to the controller.
+     * The CTRE and REV controllers have an output resolution of about 1/1000.
+     */
+    public static final double             OUTPUT_TOLERANCE        = 0.001;
+
+    /**
+     * The output is sent again after this time (seconds) even when it has not
+     * changed, to keep the controller well within the motor safety timeout.
+     */
+    public static final double             REFRESH_PERIOD          = 0.05;
+
+    // Creates the CTRE and REV devices on the CAN bus
+    private static final TCanDeviceFactory HARDWARE_DEVICE_FACTORY = new TCanDeviceFactory() {
+
+        @Override
+        public double getTime() {
+            return Timer.getFPGATimestamp();
+        }
+
+        @Override
+        public TCanDevice newDevice(TCanSpeedControllerType controllerType, int canAddress) {
+
+            switch (controllerType) {
+            case SPARK_MAX_BRUSHED:
+                return new TSparkCanDevice(controllerType, new CANSparkMax(canAddress, MotorType.kBrushed));
+            case SPARK_MAX_BRUSHLESS:
+                return new TSparkCanDevice(controllerType, new CANSparkMax(canAddress, MotorType.kBrushless));
+            case VICTOR_SPX:
+                return new TCtreCanDevice(controllerType, new VictorSPX(canAddress));
+            case TALON_SRX:
+            default:
+                return new TCtreCanDevice(TCanSpeedControllerType.TALON_SRX, new TalonSRX(canAddress));
+            }
+        }
+    };
+
+    private static TCanDeviceFactory       deviceFactory           = HARDWARE_DEVICE_FACTORY;
+
+    // All CAN speed controllers, used by the TCanHealthMonitor
+    private static final List<TCanSpeedController> allControllers  = new ArrayList<TCanSpeedController>();
 
-    private double                    speedSetpoint = 0;
+    private final TCanDeviceFactory        factory;
+    private final TCanDevice               canDevice;
+
+    private final List<TCanDevice>         followers               = new ArrayList<TCanDevice>();
+
+    // Followers that cannot follow the primary device in hardware
+    private final List<TCanDevice>         softwareFollowers       = new ArrayList<TCanDevice>();
+
+    private volatile double                speedSetpoint           = 0;
+    private TNeutralMode                   neutralMode             = null;
+
+    // Last output sent to the controller. Guarded by this controller
+    // because stopMotor() may be called from an interrupt thread.
+    private double                         lastOutput              = 0;
+    private double                         lastOutputTime          = -1;
 
     /**
      * CAN Speed Controller
@@ -90,30 +148,16 @@ public class TCanSpeedController extends TSpeedController {
 
         super(isInverted);
 
-        switch (controllerType) {
-            case SPARK_MAX_BRUSHED:
-            case SPARK_MAX_BRUSHLESS:
-                canSparkSpeedController = newSparkController(controllerType, canAddress);
-                canCtreSpeedController = null;
-                if (followerCanAddresses.length > 0) {
-                	canSparkFollowerSpeedController = newSparkController(controllerType, followerCanAddresses[0]);
-                }
-                else {
-                	canSparkFollowerSpeedController = null;
-                }
-                break;
-            case TALON_SRX:
-            case VICTOR_SPX:
-            default:
-                canSparkSpeedController = null;
-                canSparkFollowerSpeedController = null;
-                canCtreSpeedController = newCtreController(controllerType, canAddress);
-                for (int followerCanAddress : followerCanAddresses) {
-                    BaseMotorController follower = newCtreController(controllerType, followerCanAddress);
-                    follower.follow(canCtreSpeedController);
-                }
-                break;
+        factory = deviceFactory;
+        canDevice = factory.newDevice(controllerType, canAddress);
+
+        setStatusFrameRole(getDefaultStatusFrameRole(controllerType));
+
+        for (int followerCanAddress : followerCanAddresses) {
+            addFollower(controllerType, followerCanAddress);
         }
+
+        allControllers.add(this);
     }
 
     /**
@@ -121,7 +165,8 @@ public class TCanSpeedController extends TSpeedController {
      * <p>
      * Supports two CAN speed controllers of different types. The follower devices
      * will be configured to follow the primary CAN device. The speed will only ever
-     * be set on the primary CAN device.
+     * be set on the primary CAN device. More followers can be added using
+     * {@link #addFollower(TCanSpeedControllerType, int)}.
      * <p>
      * If there is an encoder or limit switches attached to one of the devices, it
      * should be set as the primary device, not the follower. Encoders and limits
@@ -146,7 +191,8 @@ public class TCanSpeedController extends TSpeedController {
      * <p>
      * Supports two CAN speed controllers of different types. The follower devices
      * will be configured to follow the primary CAN device. The speed will only ever
-     * be set on the primary CAN device.
+     * be set on the primary CAN device. More followers can be added using
+     * {@link #addFollower(TCanSpeedControllerType, int)}.
      * <p>
      * This constructor also supports motor inversion
      * <p>
@@ -170,39 +216,43 @@ public class TCanSpeedController extends TSpeedController {
 
         super(isInverted);
 
-        switch (controllerType) {
-            case SPARK_MAX_BRUSHED:
-            case SPARK_MAX_BRUSHLESS:
-                canSparkSpeedController = newSparkController(controllerType, canAddress);
-                canSparkFollowerSpeedController = newSparkController(controllerType, followerCanAddress);
-                canCtreSpeedController = null;
-                break;
-            case TALON_SRX:
-            case VICTOR_SPX:
-            default:
-                canSparkSpeedController = null;
-                canSparkFollowerSpeedController = null;
-                canCtreSpeedController = newCtreController(controllerType, canAddress);
-                break;
-        }
+        factory = deviceFactory;
+        canDevice = factory.newDevice(controllerType, canAddress);
 
-        switch (followerControllerType) {
-            case SPARK_MAX_BRUSHED:
-            case SPARK_MAX_BRUSHLESS:
-                CANSparkMax sparkFollower = newSparkController(followerControllerType, followerCanAddress);
-//                if (canSparkSpeedController != null) {
-//                    sparkFollower.follow(canSparkSpeedController);
-//                }
-                break;
-        case TALON_SRX:
-            case VICTOR_SPX:
-            default:
-                BaseMotorController ctreFollower = newCtreController(followerControllerType, followerCanAddress);
-                if (canCtreSpeedController != null) {
-                    ctreFollower.follow(canCtreSpeedController);
-                }
-                break;
+        setStatusFrameRole(getDefaultStatusFrameRole(controllerType));
+
+        addFollower(followerControllerType, followerCanAddress);
+
+        allControllers.add(this);
+    }
+
+    /**
+     * Add a follower device of any type
+     * <p>
+     * The follower is configured to follow the primary CAN device in hardware so
+     * that only the output of the primary device is sent on the CAN bus:
+     * <ul>
+     * <li>CTRE devices follow a CTRE primary device</li>
+     * <li>SPARK MAX devices follow a SPARK MAX or a CTRE primary device</li>
+     * </ul>
+     * CTRE devices cannot follow a SPARK MAX, so a CTRE follower of a SPARK MAX
+     * primary device is set each time the speed is set.
+     * 
+     * @param followerControllerType
+     *            a valid {@link TCanSpeedControllerType}
+     * @param followerCanAddress
+     *            address on the CAN bus
+     */
+    public void addFollower(TCanSpeedControllerType followerControllerType, int followerCanAddress) {
+
+        TCanDevice follower = factory.newDevice(followerControllerType, followerCanAddress);
+
+        if (!follower.follow(canDevice)) {
+            softwareFollowers.add(follower);
         }
+
+        follower.setStatusFrameRole(TCanStatusFrameRole.FOLLOWER);
+        followers.add(follower);
     }
 
     /**
@@ -219,70 +269,199 @@ public class TCanSpeedController extends TSpeedController {
         return speedSetpoint;
     }
 
+    @Override
+    public void disableVoltageCompensation() {
+
+        for (TCanDevice device : getDevices()) {
+            device.disableVoltageCompensation();
+        }
+    }
+
+    /**
+     * Enable voltage compensation on the primary and all follower devices
+     * <p>
+     * {@inheritDoc}
+     */
+    @Override
+    public void enableVoltageCompensation(double nominalVoltage) {
+
+        if (nominalVoltage <= 0) {
+            System.out.println("Invalid nominal voltage " + nominalVoltage + ". Voltage compensation ignored.");
+            return;
+        }
+
+        for (TCanDevice device : getDevices()) {
+            device.enableVoltageCompensation(nominalVoltage);
+        }
+    }
+
+    /**
+     * Get all of the CAN speed controllers that have been constructed
+     * 
+     * @return list of TCanSpeedControllers
+     */
+    static List<TCanSpeedController> getAllControllers() {
+        return new ArrayList<TCanSpeedController>(allControllers);
+    }
+
+    /**
+     * Get the primary and follower devices
+     * 
+     * @return list of devices, primary device first
+     */
+    List<TCanDevice> getDevices() {
+
+        List<TCanDevice> devices = new ArrayList<TCanDevice>();
+
+        devices.add(canDevice);
+        devices.addAll(followers);
+
+        return devices;
+    }
+
     /**
      * Return an encoder with the same inversion setting as the motor
      * 
-     * @return TEncoder attached to this TalonSRX, or {@code null} if this is not a
-     *         TalonSRX device. The encoder is assumed to be a quadrature encoder.
+     * @return TEncoder attached to this TalonSRX or SparkMax, or {@code null} if
+     *         the device does not support an encoder. The TalonSRX encoder is
+     *         assumed to be a quadrature encoder.
      */
     @Override
     public TEncoder getEncoder() {
+        return canDevice.getEncoder(getInverted());
+    }
 
-        if (this.canCtreSpeedController != null) {
-            if (this.canCtreSpeedController instanceof TalonSRX) {
-                return new TCanEncoder((TalonSRX) canCtreSpeedController, getInverted());
-            }
+    /**
+     * Set the closed loop ramp rate of the primary device
+     * <p>
+     * Followers are not ramped because they follow the ramped output of the
+     * primary device.
+     * <p>
+     * {@inheritDoc}
+     */
+    @Override
+    public void setClosedLoopRampRate(double secondsFromNeutralToFull) {
+
+        if (secondsFromNeutralToFull < 0) {
+            System.out.println("Invalid ramp rate " + secondsFromNeutralToFull + ". Ramp rate ignored.");
+            return;
+        }
+
+        canDevice.setClosedLoopRampRate(secondsFromNeutralToFull);
+    }
+
+    /**
+     * Set the open loop ramp rate of the primary device
+     * <p>
+     * Followers are not ramped because they follow the ramped output of the
+     * primary device, except CTRE followers of a SPARK MAX which are set
+     * directly.
+     * <p>
+     * {@inheritDoc}
+     */
+    @Override
+    public void setOpenLoopRampRate(double secondsFromNeutralToFull) {
+
+        if (secondsFromNeutralToFull < 0) {
+            System.out.println("Invalid ramp rate " + secondsFromNeutralToFull + ". Ramp rate ignored.");
+            return;
         }
-        if (this.canSparkSpeedController != null) {
-            return new TCanSparkEncoder(canSparkSpeedController, getInverted());
+
+        canDevice.setOpenLoopRampRate(secondsFromNeutralToFull);
+
+        for (TCanDevice follower : softwareFollowers) {
+            follower.setOpenLoopRampRate(secondsFromNeutralToFull);
         }
-        return null;
     }
 
     /**
-     * Get a new controller of the appropriate type at the given CAN address.
+     * Set the neutral mode of the primary and all follower devices
+     * <p>
+     * The mode is only sent to the devices when it changes.
+     * <p>
+     * {@inheritDoc}
+     */
+    @Override
+    public void setNeutralMode(TNeutralMode neutralMode) {
+
+        if (neutralMode == null || neutralMode == this.neutralMode) {
+            return;
+        }
+
+        this.neutralMode = neutralMode;
+
+        for (TCanDevice device : getDevices()) {
+            device.setNeutralMode(neutralMode);
+        }
+    }
+
+    /**
+     * Set the status frame periods of the primary CAN device based on its role.
+     * <p>
+     * By default, a Talon SRX or SPARK MAX is assumed to have an encoder attached
+     * and a Victor SPX is assumed to have no sensors. A primary device with no
+     * sensors that are read by the robot can be set to
+     * {@link TCanStatusFrameRole#LEADER} to reduce the CAN bus traffic.
      * 
-     * @param controllerType
-     *            a valid {@link TCanSpeedControllerType}
-     * @param canAddress
-     *            a valid unique CAN address
-     * @return TCanSpeedController of the correct type. By default, the speed
-     *         controller will be a TalonSRX.
+     * @param role
+     *            {@link TCanStatusFrameRole} of the primary device
      */
-    private CANSparkMax newSparkController(TCanSpeedControllerType controllerType, int canAddress) {
+    public void setStatusFrameRole(TCanStatusFrameRole role) {
+
+        if (role == TCanStatusFrameRole.FOLLOWER) {
+            System.out.println("The primary CAN device cannot use the FOLLOWER status frame role. "
+                    + "Status frame role ignored.");
+            return;
+        }
+
+        canDevice.setStatusFrameRole(role);
+    }
+
+    private TCanStatusFrameRole getDefaultStatusFrameRole(TCanSpeedControllerType controllerType) {
 
         switch (controllerType) {
+        case VICTOR_SPX:
+            return TCanStatusFrameRole.LEADER;
+        case TALON_SRX:
         case SPARK_MAX_BRUSHED:
-            return new CANSparkMax(canAddress, MotorType.kBrushed);
         case SPARK_MAX_BRUSHLESS:
         default:
-            return new CANSparkMax(canAddress, MotorType.kBrushless);
+            return TCanStatusFrameRole.LEADER_WITH_FEEDBACK;
         }
     }
 
     /**
-     * Get a new controller of the appropriate type at the given CAN address.
+     * Set the factory used to create the CAN devices of all speed controllers
+     * constructed after this call.
+     * <p>
+     * This is typically used to run the speed controllers on a
+     * {@link TVirtualCanDeviceFactory} without a CAN bus.
      * 
-     * @param controllerType
-     *            a valid {@link TCanSpeedControllerType}
-     * @param canAddress
-     *            a valid unique CAN address
-     * @return TCanSpeedController of the correct type. By default, the speed
-     *         controller will be a TalonSRX.
+     * @param deviceFactory
+     *            {@link TCanDeviceFactory}, or {@code null} to use the CTRE and
+     *            REV devices on the CAN bus
      */
-    private BaseMotorController newCtreController(TCanSpeedControllerType controllerType, int canAddress) {
+    public static void setDeviceFactory(TCanDeviceFactory deviceFactory) {
 
-        switch (controllerType) {
-        case VICTOR_SPX:
-            return new VictorSPX(canAddress);
-        case TALON_SRX:
-        default:
-            return new TalonSRX(canAddress);
+        if (deviceFactory == null) {
+            deviceFactory = HARDWARE_DEVICE_FACTORY;
         }
+
+        TCanSpeedController.deviceFactory = deviceFactory;
     }
 
+    /**
+     * Set the speed of the controller.
+     * <p>
+     * The output is only sent on the CAN bus if it changed by more than the
+     * {@link #OUTPUT_TOLERANCE}, or if it has not been sent for the
+     * {@link #REFRESH_PERIOD}. A stop (zero output) is always sent if the last
+     * output was not zero.
+     * <p>
+     * {@inheritDoc}
+     */
     @Override
-    public void set(double speed) {
+    public synchronized void set(double speed) {
 
         speedSetpoint = speed;
 
@@ -290,14 +469,45 @@ public class TCanSpeedController extends TSpeedController {
             speed = -speed;
         }
 
-        if (canCtreSpeedController != null) {
-            canCtreSpeedController.set(ControlMode.PercentOutput, speed);
+        double time = factory.getTime();
+
+        if (lastOutputTime >= 0
+                && time - lastOutputTime < REFRESH_PERIOD
+                && Math.abs(speed - lastOutput) <= OUTPUT_TOLERANCE
+                && !(speed == 0 && lastOutput != 0)) {
+            return;
         }
-        else {
-            canSparkSpeedController.set(speed);
-            if (canSparkFollowerSpeedController != null) {
-            	canSparkFollowerSpeedController.set(speed);
-            }
+
+        write(speed, time);
+    }
+
+    /**
+     * Stop the motor
+     * <p>
+     * The stop is always sent on the CAN bus. This routine may be called from
+     * another thread, for example a limit switch interrupt handler.
+     */
+    @Override
+    public synchronized void stopMotor() {
+
+        speedSetpoint = 0;
+
+        write(0, factory.getTime());
+    }
+
+    /**
+     * Send the output to the primary device and the software followers
+     */
+    private void write(double output, double time) {
+
+        lastOutput = output;
+        lastOutputTime = time;
+
+        canDevice.set(output);
+
+        // CTRE followers cannot follow a SPARK MAX in hardware
+        for (TCanDevice follower : softwareFollowers) {
+            follower.set(output);
         }
     }
 
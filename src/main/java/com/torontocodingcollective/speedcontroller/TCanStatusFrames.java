@@ -0,0 +1,237 @@
+package com.torontocodingcollective.speedcontroller;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.ctre.phoenix.motorcontrol.StatusFrame;
+import com.ctre.phoenix.motorcontrol.StatusFrameEnhanced;
+import com.ctre.phoenix.motorcontrol.can.BaseMotorController;
+import com.ctre.phoenix.motorcontrol.can.TalonSRX;
+import com.revrobotics.CANSparkMax;
+import com.revrobotics.CANSparkMaxLowLevel.PeriodicFrame;
+
+/**
+ * TCanStatusFrames sets the status frame periods of CAN speed controllers based
+ * on the role of the controller.
+ * <p>
+ * By default every CAN speed controller sends all of its status frames, even
+ * when nothing on the robot reads them. Setting the frame periods by role
+ * sends the feedback of a leader with an encoder quickly so that the encoder
+ * values are not stale, and slows down all of the frames that are not read.
+ * <p>
+ * The frames sent by each configured device are tracked to give an estimate of
+ * the CAN bus utilization. The estimate does not include devices that are not
+ * configured through this class (PDP, PCM, Pigeon etc).
+ */
+public class TCanStatusFrames {
+
+    public enum TCanStatusFrameRole {
+
+        /** Leader with an encoder or limit switches that are read by the robot */
+        LEADER_WITH_FEEDBACK,
+        /** Leader with no sensor feedback read by the robot */
+        LEADER,
+        /** Follower device. The output is set by the leader. */
+        FOLLOWER
+    }
+
+    /** Period of frames that are read every loop (ms) */
+    public static final int     FAST_PERIOD_MS          = 10;
+
+    /** Period of frames that are read occasionally (ms) */
+    public static final int     MEDIUM_PERIOD_MS        = 100;
+
+    /** Period of frames that are not read (ms) */
+    public static final int     SLOW_PERIOD_MS          = 255;
+
+    /** Period of SPARK MAX frames that are not read (ms) */
+    public static final int     SPARK_SLOW_PERIOD_MS    = 500;
+
+    // Approximate size of an extended CAN frame with 8 data bytes
+    // including bit stuffing and the inter-frame space
+    private static final int    BITS_PER_FRAME          = 140;
+
+    private static final double CAN_BUS_BITS_PER_SEC    = 1000000;
+
+    // CTRE control frames are sent every 10ms. SPARK MAX control frames
+    // are sent each time the output is set, about every 20ms.
+    private static final int    CTRE_CONTROL_PERIOD_MS  = 10;
+    private static final int    SPARK_CONTROL_PERIOD_MS = 20;
+
+    private static final int    CAN_TIMEOUT_MS          = 10;
+
+    // Estimated frames per second for each configured device
+    private static final Map<String, Double>              deviceFrameRates = new LinkedHashMap<String, Double>();
+    private static final Map<String, TCanStatusFrameRole> deviceRoles      = new LinkedHashMap<String, TCanStatusFrameRole>();
+
+    /**
+     * Set the status frame periods of a CTRE controller
+     *
+     * @param controller
+     *            Talon SRX or Victor SPX
+     * @param role
+     *            {@link TCanStatusFrameRole} of the controller
+     */
+    static void configure(BaseMotorController controller, TCanStatusFrameRole role) {
+
+        int generalPeriod;
+        int feedbackPeriod;
+        int tempVbatPeriod;
+
+        switch (role) {
+        case LEADER_WITH_FEEDBACK:
+            generalPeriod  = FAST_PERIOD_MS;
+            feedbackPeriod = FAST_PERIOD_MS;
+            tempVbatPeriod = MEDIUM_PERIOD_MS;
+            break;
+        case LEADER:
+            generalPeriod  = FAST_PERIOD_MS;
+            feedbackPeriod = SLOW_PERIOD_MS;
+            tempVbatPeriod = MEDIUM_PERIOD_MS;
+            break;
+        case FOLLOWER:
+        default:
+            generalPeriod  = MEDIUM_PERIOD_MS;
+            feedbackPeriod = SLOW_PERIOD_MS;
+            tempVbatPeriod = SLOW_PERIOD_MS;
+            break;
+        }
+
+        controller.setStatusFramePeriod(StatusFrame.Status_1_General,      generalPeriod,  CAN_TIMEOUT_MS);
+        controller.setStatusFramePeriod(StatusFrame.Status_2_Feedback0,    feedbackPeriod, CAN_TIMEOUT_MS);
+        controller.setStatusFramePeriod(StatusFrame.Status_4_AinTempVbat,  tempVbatPeriod, CAN_TIMEOUT_MS);
+
+        // Frames that are not used by the framework
+        controller.setStatusFramePeriod(StatusFrame.Status_10_MotionMagic, SLOW_PERIOD_MS, CAN_TIMEOUT_MS);
+        controller.setStatusFramePeriod(StatusFrame.Status_12_Feedback1,   SLOW_PERIOD_MS, CAN_TIMEOUT_MS);
+        controller.setStatusFramePeriod(StatusFrame.Status_13_Base_PIDF0,  SLOW_PERIOD_MS, CAN_TIMEOUT_MS);
+        controller.setStatusFramePeriod(StatusFrame.Status_14_Turn_PIDF1,  SLOW_PERIOD_MS, CAN_TIMEOUT_MS);
+
+        double frameRate = frameRate(generalPeriod) + frameRate(feedbackPeriod) + frameRate(tempVbatPeriod)
+                + 4 * frameRate(SLOW_PERIOD_MS) + frameRate(CTRE_CONTROL_PERIOD_MS);
+
+        String deviceName = "VictorSPX";
+
+        if (controller instanceof TalonSRX) {
+
+            deviceName = "TalonSRX";
+
+            controller.setStatusFramePeriod(StatusFrameEnhanced.Status_3_Quadrature, SLOW_PERIOD_MS, CAN_TIMEOUT_MS);
+            controller.setStatusFramePeriod(StatusFrameEnhanced.Status_8_PulseWidth, SLOW_PERIOD_MS, CAN_TIMEOUT_MS);
+
+            frameRate += 2 * frameRate(SLOW_PERIOD_MS);
+        }
+
+        addDevice(deviceName + " " + controller.getDeviceID(), role, frameRate);
+    }
+
+    /**
+     * Set the periodic frame periods of a SPARK MAX controller
+     * <p>
+     * A SPARK MAX following another SPARK MAX listens to the status 0 frame of
+     * the leader, so the status 0 frame of all leaders is always sent quickly.
+     *
+     * @param controller
+     *            SPARK MAX
+     * @param role
+     *            {@link TCanStatusFrameRole} of the controller
+     */
+    static void configure(CANSparkMax controller, TCanStatusFrameRole role) {
+
+        int status0Period;
+        int status1Period;
+        int status2Period;
+        int controlPeriod;
+
+        switch (role) {
+        case LEADER_WITH_FEEDBACK:
+            // Status 1 holds the velocity, status 2 the position
+            status0Period = FAST_PERIOD_MS;
+            status1Period = FAST_PERIOD_MS;
+            status2Period = FAST_PERIOD_MS;
+            controlPeriod = SPARK_CONTROL_PERIOD_MS;
+            break;
+        case LEADER:
+            status0Period = FAST_PERIOD_MS;
+            status1Period = MEDIUM_PERIOD_MS;
+            status2Period = SPARK_SLOW_PERIOD_MS;
+            controlPeriod = SPARK_CONTROL_PERIOD_MS;
+            break;
+        case FOLLOWER:
+        default:
+            status0Period = MEDIUM_PERIOD_MS;
+            status1Period = SPARK_SLOW_PERIOD_MS;
+            status2Period = SPARK_SLOW_PERIOD_MS;
+            controlPeriod = 0;
+            break;
+        }
+
+        controller.setPeriodicFramePeriod(PeriodicFrame.kStatus0, status0Period);
+        controller.setPeriodicFramePeriod(PeriodicFrame.kStatus1, status1Period);
+        controller.setPeriodicFramePeriod(PeriodicFrame.kStatus2, status2Period);
+
+        double frameRate = frameRate(status0Period) + frameRate(status1Period) + frameRate(status2Period)
+                + frameRate(controlPeriod);
+
+        addDevice("SparkMax " + controller.getDeviceId(), role, frameRate);
+    }
+
+    /**
+     * Get the estimated CAN bus utilization of all of the configured devices
+     *
+     * @return utilization as a fraction of the bus bandwidth 0 to 1.0
+     */
+    public static double getEstimatedBusUtilization() {
+        return getTotalFrameRate() * BITS_PER_FRAME / CAN_BUS_BITS_PER_SEC;
+    }
+
+    /**
+     * Get a report of the estimated frame rates of all of the configured devices
+     * and the estimated CAN bus utilization.
+     *
+     * @return multi-line report
+     */
+    public static String getBusUtilizationReport() {
+
+        StringBuilder sb = new StringBuilder();
+
+        sb.append("CAN bus estimated utilization ")
+                .append(Math.round(getEstimatedBusUtilization() * 1000) / 10.0)
+                .append("% (")
+                .append(Math.round(getTotalFrameRate()))
+                .append(" frames/s)");
+
+        for (Map.Entry<String, Double> entry : deviceFrameRates.entrySet()) {
+            sb.append("\n   ").append(entry.getKey())
+                    .append(" ").append(deviceRoles.get(entry.getKey()))
+                    .append(": ").append(Math.round(entry.getValue())).append(" frames/s");
+        }
+
+        return sb.toString();
+    }
+
+    private static void addDevice(String deviceName, TCanStatusFrameRole role, double frameRate) {
+        deviceFrameRates.put(deviceName, frameRate);
+        deviceRoles.put(deviceName, role);
+    }
+
+    private static double frameRate(int periodMs) {
+
+        if (periodMs <= 0) {
+            return 0;
+        }
+
+        return 1000.0 / periodMs;
+    }
+
+    private static double getTotalFrameRate() {
+
+        double totalFrameRate = 0;
+
+        for (double frameRate : deviceFrameRates.values()) {
+            totalFrameRate += frameRate;
+        }
+
+        return totalFrameRate;
+    }
+}
@@ -0,0 +1,132 @@
+package com.torontocodingcollective.speedcontroller;
+
+import com.ctre.phoenix.motorcontrol.ControlMode;
+import com.ctre.phoenix.motorcontrol.NeutralMode;
+import com.ctre.phoenix.motorcontrol.StickyFaults;
+import com.ctre.phoenix.motorcontrol.can.BaseMotorController;
+import com.ctre.phoenix.motorcontrol.can.TalonSRX;
+import com.torontocodingcollective.sensors.encoder.TCanEncoder;
+import com.torontocodingcollective.sensors.encoder.TEncoder;
+import com.torontocodingcollective.speedcontroller.TCanSpeedController.TCanSpeedControllerType;
+import com.torontocodingcollective.speedcontroller.TCanStatusFrames.TCanStatusFrameRole;
+import com.torontocodingcollective.speedcontroller.TSpeedController.TNeutralMode;
+
+/**
+ * TCtreCanDevice is a CTRE Talon SRX or Victor SPX on the CAN bus
+ */
+class TCtreCanDevice implements TCanDevice {
+
+    private static final int               CAN_TIMEOUT_MS = 10;
+
+    private final TCanSpeedControllerType  controllerType;
+    private final BaseMotorController      controller;
+    private final StickyFaults             stickyFaults   = new StickyFaults();
+
+    TCtreCanDevice(TCanSpeedControllerType controllerType, BaseMotorController controller) {
+        this.controllerType = controllerType;
+        this.controller = controller;
+    }
+
+    @Override
+    public void clearStickyFaults() {
+        controller.clearStickyFaults(CAN_TIMEOUT_MS);
+    }
+
+    @Override
+    public void disableVoltageCompensation() {
+        controller.enableVoltageCompensation(false);
+    }
+
+    @Override
+    public void enableVoltageCompensation(double nominalVoltage) {
+        controller.configVoltageCompSaturation(nominalVoltage, CAN_TIMEOUT_MS);
+        controller.enableVoltageCompensation(true);
+    }
+
+    /**
+     * CTRE devices can only follow other CTRE devices
+     * <p>
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean follow(TCanDevice leader) {
+
+        if (leader instanceof TCtreCanDevice) {
+            controller.follow(((TCtreCanDevice) leader).controller);
+            return true;
+        }
+
+        return false;
+    }
+
+    @Override
+    public double getBusVoltage() {
+        return controller.getBusVoltage();
+    }
+
+    @Override
+    public TCanSpeedControllerType getControllerType() {
+        return controllerType;
+    }
+
+    @Override
+    public int getDeviceId() {
+        return controller.getDeviceID();
+    }
+
+    /**
+     * Get the quadrature encoder attached to a Talon SRX
+     * <p>
+     * {@inheritDoc}
+     */
+    @Override
+    public TEncoder getEncoder(boolean isInverted) {
+
+        if (controller instanceof TalonSRX) {
+            return new TCanEncoder((TalonSRX) controller, isInverted);
+        }
+
+        return null;
+    }
+
+    @Override
+    public double getOutputCurrent() {
+        return controller.getOutputCurrent();
+    }
+
+    @Override
+    public double getTemperature() {
+        return controller.getTemperature();
+    }
+
+    @Override
+    public boolean hasStickyFault() {
+        controller.getStickyFaults(stickyFaults);
+        return stickyFaults.hasAnyFault();
+    }
+
+    @Override
+    public void set(double output) {
+        controller.set(ControlMode.PercentOutput, output);
+    }
+
+    @Override
+    public void setClosedLoopRampRate(double secondsFromNeutralToFull) {
+        controller.configClosedloopRamp(secondsFromNeutralToFull, CAN_TIMEOUT_MS);
+    }
+
+    @Override
+    public void setNeutralMode(TNeutralMode neutralMode) {
+        controller.setNeutralMode(neutralMode == TNeutralMode.BRAKE ? NeutralMode.Brake : NeutralMode.Coast);
+    }
+
+    @Override
+    public void setOpenLoopRampRate(double secondsFromNeutralToFull) {
+        controller.configOpenloopRamp(secondsFromNeutralToFull, CAN_TIMEOUT_MS);
+    }
+
+    @Override
+    public void setStatusFrameRole(TCanStatusFrameRole role) {
+        TCanStatusFrames.configure(controller, role);
+    }
+}
@@ -204,4 +204,15 @@ public class TPwmSpeedController extends TSpeedController {
         }
     }
 
+    /**
+     * PWM speed controllers do not support setting the neutral mode.
+     * <p>
+     * The brake or coast mode is set with the jumper on the speed controller, so
+     * this method does nothing.
+     */
+    @Override
+    public void setNeutralMode(TNeutralMode neutralMode) {
+        // The neutral mode is set with a jumper on PWM speed controllers
+    }
+
 }
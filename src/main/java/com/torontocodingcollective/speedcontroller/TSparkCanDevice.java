@@ -0,0 +1,120 @@
+package com.torontocodingcollective.speedcontroller;
+
+import com.revrobotics.CANSparkMax;
+import com.revrobotics.CANSparkMax.ExternalFollower;
+import com.revrobotics.CANSparkMax.IdleMode;
+import com.torontocodingcollective.sensors.encoder.TCanSparkEncoder;
+import com.torontocodingcollective.sensors.encoder.TEncoder;
+import com.torontocodingcollective.speedcontroller.TCanSpeedController.TCanSpeedControllerType;
+import com.torontocodingcollective.speedcontroller.TCanStatusFrames.TCanStatusFrameRole;
+import com.torontocodingcollective.speedcontroller.TSpeedController.TNeutralMode;
+
+/**
+ * TSparkCanDevice is a REV SPARK MAX on the CAN bus
+ */
+class TSparkCanDevice implements TCanDevice {
+
+    private final TCanSpeedControllerType controllerType;
+    private final CANSparkMax             controller;
+
+    TSparkCanDevice(TCanSpeedControllerType controllerType, CANSparkMax controller) {
+        this.controllerType = controllerType;
+        this.controller = controller;
+    }
+
+    @Override
+    public void clearStickyFaults() {
+        controller.clearFaults();
+    }
+
+    @Override
+    public void disableVoltageCompensation() {
+        controller.disableVoltageCompensation();
+    }
+
+    @Override
+    public void enableVoltageCompensation(double nominalVoltage) {
+        controller.enableVoltageCompensation(nominalVoltage);
+    }
+
+    /**
+     * A SPARK MAX can follow another SPARK MAX or a CTRE device
+     * <p>
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean follow(TCanDevice leader) {
+
+        if (leader instanceof TSparkCanDevice) {
+            controller.follow(((TSparkCanDevice) leader).controller);
+            return true;
+        }
+
+        if (leader instanceof TCtreCanDevice) {
+            controller.follow(ExternalFollower.kFollowerPhoenix, leader.getDeviceId());
+            return true;
+        }
+
+        return false;
+    }
+
+    @Override
+    public double getBusVoltage() {
+        return controller.getBusVoltage();
+    }
+
+    @Override
+    public TCanSpeedControllerType getControllerType() {
+        return controllerType;
+    }
+
+    @Override
+    public int getDeviceId() {
+        return controller.getDeviceId();
+    }
+
+    @Override
+    public TEncoder getEncoder(boolean isInverted) {
+        return new TCanSparkEncoder(controller, isInverted);
+    }
+
+    @Override
+    public double getOutputCurrent() {
+        return controller.getOutputCurrent();
+    }
+
+    @Override
+    public double getTemperature() {
+        return controller.getMotorTemperature();
+    }
+
+    @Override
+    public boolean hasStickyFault() {
+        return controller.getStickyFaults() != 0;
+    }
+
+    @Override
+    public void set(double output) {
+        controller.set(output);
+    }
+
+    @Override
+    public void setClosedLoopRampRate(double secondsFromNeutralToFull) {
+        controller.setClosedLoopRampRate(secondsFromNeutralToFull);
+    }
+
+    @Override
+    public void setNeutralMode(TNeutralMode neutralMode) {
+        controller.setIdleMode(neutralMode == TNeutralMode.BRAKE ? IdleMode.kBrake : IdleMode.kCoast);
+    }
+
+    @Override
+    public void setOpenLoopRampRate(double secondsFromNeutralToFull) {
+        controller.setOpenLoopRampRate(secondsFromNeutralToFull);
+    }
+
+    @Override
+    public void setStatusFrameRole(TCanStatusFrameRole role) {
+        TCanStatusFrames.configure(controller, role);
+    }
+}
@@ -13,6 +13,17 @@ import edu.wpi.first.wpilibj.SpeedController;
  */
 public abstract class TSpeedController implements SpeedController {
 
+    /**
+     * Behaviour of the motor when the output is zero
+     */
+    public enum TNeutralMode {
+
+        /** Short the motor leads to stop the motor quickly */
+        BRAKE,
+        /** Leave the motor leads open so the motor coasts to a stop */
+        COAST
+    }
+
     private boolean isInverted = TConst.NOT_INVERTED;
 
     protected TSpeedController(boolean isInverted) {
@@ -24,6 +35,30 @@ public abstract class TSpeedController implements SpeedController {
         stopMotor();
     }
 
+    /**
+     * Disable voltage compensation
+     * <p>
+     * The output is a fraction of the battery voltage.
+     */
+    public void disableVoltageCompensation() {
+        System.out.println("Voltage compensation is not supported for " + this.getClass().getName());
+    }
+
+    /**
+     * Enable voltage compensation
+     * <p>
+     * With voltage compensation, an output of 1.0 applies the nominal voltage to
+     * the motor regardless of the battery voltage, so the same output drives the
+     * motor at the same speed as the battery drains. The nominal voltage should
+     * be below the battery voltage under load (typically 11V).
+     * 
+     * @param nominalVoltage
+     *            voltage applied at an output of 1.0
+     */
+    public void enableVoltageCompensation(double nominalVoltage) {
+        System.out.println("Voltage compensation is not supported for " + this.getClass().getName());
+    }
+
     @Override
     public boolean getInverted() {
         return isInverted;
@@ -40,6 +75,31 @@ public abstract class TSpeedController implements SpeedController {
         set(output);
     }
 
+    /**
+     * Set the closed loop ramp rate used when the controller runs a closed loop
+     * on the device
+     * 
+     * @param secondsFromNeutralToFull
+     *            minimum time to ramp from zero to full output, or 0 to disable
+     *            the ramp
+     */
+    public void setClosedLoopRampRate(double secondsFromNeutralToFull) {
+        System.out.println("Closed loop ramp rate is not supported for " + this.getClass().getName());
+    }
+
+    /**
+     * Set the neutral mode of the speed controller
+     * <p>
+     * The neutral mode is used whenever the output is zero, for example at the
+     * end of a command that brakes when finished.
+     * 
+     * @param neutralMode
+     *            {@link TNeutralMode#BRAKE} or {@link TNeutralMode#COAST}
+     */
+    public void setNeutralMode(TNeutralMode neutralMode) {
+        System.out.println("Neutral mode is not supported for " + this.getClass().getName());
+    }
+
     @Override
     public void setInverted(boolean isInverted) {
         if (isInverted != this.isInverted) {
@@ -48,6 +108,18 @@ public abstract class TSpeedController implements SpeedController {
         }
     }
 
+    /**
+     * Set the open loop ramp rate used when the output is set with
+     * {@link #set(double)}
+     * 
+     * @param secondsFromNeutralToFull
+     *            minimum time to ramp from zero to full output, or 0 to disable
+     *            the ramp
+     */
+    public void setOpenLoopRampRate(double secondsFromNeutralToFull) {
+        System.out.println("Open loop ramp rate is not supported for " + this.getClass().getName());
+    }
+
     @Override
     public void stopMotor() {
         set(0);
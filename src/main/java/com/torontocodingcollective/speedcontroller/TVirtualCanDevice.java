@@ -0,0 +1,540 @@
+package com.torontocodingcollective.speedcontroller;
+
+import com.torontocodingcollective.sensors.encoder.TEncoder;
+import com.torontocodingcollective.speedcontroller.TCanSpeedController.TCanSpeedControllerType;
+import com.torontocodingcollective.speedcontroller.TCanStatusFrames.TCanStatusFrameRole;
+import com.torontocodingcollective.speedcontroller.TSpeedController.TNeutralMode;
+
+/**
+ * TVirtualCanDevice simulates a motor controller and motor on the CAN bus
+ * <p>
+ * The device is created by a {@link TVirtualCanDeviceFactory} and models:
+ * <ul>
+ * <li>the CAN latency of the output writes and the feedback frames</li>
+ * <li>the open loop ramp, voltage compensation and neutral mode</li>
+ * <li>following another virtual device</li>
+ * <li>the encoder position and velocity using a first order motor model, with
+ * the feedback updated at the status frame period of the device role</li>
+ * <li>the output current and the motor temperature</li>
+ * </ul>
+ * The model is simple and is intended for testing the CAN speed controller
+ * code, not for tuning a robot. The simulation is advanced each time the device
+ * is used, in steps of {@link #SIMULATION_STEP}.
+ * <p>
+ * The device is thread safe so that it can be polled by the
+ * {@link TCanHealthMonitor} while the output is set by the robot loop.
+ */
+public class TVirtualCanDevice implements TCanDevice {
+
+    /** Simulation time step (seconds) */
+    public static final double             SIMULATION_STEP       = 0.001;
+
+    /** Default speed of the motor at 12V (encoder counts/second) */
+    public static final double             DEFAULT_FREE_SPEED    = 5000;
+
+    /** Default time constant of the motor when driven or braking (seconds) */
+    public static final double             DEFAULT_TIME_CONSTANT = 0.1;
+
+    // Time constant when coasting (seconds)
+    private static final double            COAST_TIME_CONSTANT   = 1.0;
+
+    // Motor voltage at which the free speed is measured
+    private static final double            NOMINAL_VOLTAGE       = 12.0;
+
+    private static final double            STALL_CURRENT         = 130.0;
+    private static final double            AMBIENT_TEMPERATURE   = 25.0;
+
+    // Heating per Amp squared (degrees C/second) and the cooling
+    // time constant (seconds)
+    private static final double            HEATING_RATE          = 0.0005;
+    private static final double            COOLING_TIME_CONSTANT = 300.0;
+
+    // Period of the CTRE encoder rate (seconds)
+    private static final double            CTRE_RATE_PERIOD      = 0.1;
+
+    // Writes that have been sent but have not arrived at the device
+    private static final int               MAX_PENDING_WRITES    = 16;
+
+    private final TVirtualCanDeviceFactory factory;
+    private final TCanSpeedControllerType  controllerType;
+    private final int                      deviceId;
+
+    private double                         freeSpeed             = DEFAULT_FREE_SPEED;
+    private double                         timeConstant          = DEFAULT_TIME_CONSTANT;
+    private double                         busVoltage            = 12.5;
+    private boolean                        stickyFault           = false;
+
+    // Configuration
+    private TVirtualCanDevice              leader                = null;
+    private TCanStatusFrameRole            role                  = TCanStatusFrameRole.LEADER_WITH_FEEDBACK;
+    private TNeutralMode                   neutralMode           = TNeutralMode.COAST;
+    private double                         openLoopRampRate      = 0;
+    private double                         closedLoopRampRate    = 0;
+    private double                         compensationVoltage   = 0;
+
+    // Output writes in the order they were sent
+    private final double[]                 pendingWriteTime      = new double[MAX_PENDING_WRITES];
+    private final double[]                 pendingWriteOutput    = new double[MAX_PENDING_WRITES];
+    private int                            pendingWriteStart     = 0;
+    private int                            pendingWriteCount     = 0;
+    private long                           writeCount            = 0;
+
+    // Simulated state
+    private double                         commandedOutput       = 0;
+    private double                         appliedOutput         = 0;
+    private double                         position              = 0;
+    private double                         velocity              = 0;
+    private double                         current               = 0;
+    private double                         temperature           = AMBIENT_TEMPERATURE;
+    private double                         simulationTime;
+
+    // Feedback frames
+    private double                         nextFrameTime;
+    private double                         frameArrivalTime      = -1;
+    private double                         pendingFramePosition  = 0;
+    private double                         pendingFrameVelocity  = 0;
+    private double                         feedbackPosition      = 0;
+    private double                         feedbackVelocity      = 0;
+
+    TVirtualCanDevice(TVirtualCanDeviceFactory factory, TCanSpeedControllerType controllerType, int deviceId) {
+        this.factory = factory;
+        this.controllerType = controllerType;
+        this.deviceId = deviceId;
+        this.simulationTime = factory.getTime();
+        this.nextFrameTime = simulationTime;
+    }
+
+    @Override
+    public synchronized void clearStickyFaults() {
+        stickyFault = false;
+    }
+
+    @Override
+    public synchronized void disableVoltageCompensation() {
+        update();
+        compensationVoltage = 0;
+    }
+
+    @Override
+    public synchronized void enableVoltageCompensation(double nominalVoltage) {
+        update();
+        compensationVoltage = nominalVoltage;
+    }
+
+    /**
+     * A virtual device can follow another virtual device, except that a CTRE
+     * device cannot follow a SPARK MAX
+     * <p>
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized boolean follow(TCanDevice leader) {
+
+        if (!(leader instanceof TVirtualCanDevice) || leader == this) {
+            return false;
+        }
+
+        if (!isSparkMax(controllerType) && isSparkMax(((TVirtualCanDevice) leader).controllerType)) {
+            return false;
+        }
+
+        update();
+        this.leader = (TVirtualCanDevice) leader;
+
+        return true;
+    }
+
+    /**
+     * Get the output applied to the motor after the ramp
+     *
+     * @return output -1.0 to 1.0
+     */
+    public synchronized double getAppliedOutput() {
+        update();
+        return appliedOutput;
+    }
+
+    @Override
+    public synchronized double getBusVoltage() {
+        return busVoltage;
+    }
+
+    /**
+     * Get the closed loop ramp rate
+     *
+     * @return seconds from neutral to full output
+     */
+    public synchronized double getClosedLoopRampRate() {
+        return closedLoopRampRate;
+    }
+
+    /**
+     * Get the voltage compensation
+     *
+     * @return nominal voltage, or 0 if voltage compensation is disabled
+     */
+    public synchronized double getCompensationVoltage() {
+        return compensationVoltage;
+    }
+
+    /**
+     * Get the controller type that this device simulates
+     *
+     * @return {@link TCanSpeedControllerType}
+     */
+    @Override
+    public TCanSpeedControllerType getControllerType() {
+        return controllerType;
+    }
+
+    @Override
+    public int getDeviceId() {
+        return deviceId;
+    }
+
+    /**
+     * Get an encoder that reads the feedback frames of the device. The
+     * position is in encoder counts. The rate is in the units of the encoder of
+     * the simulated device: counts/100ms for a Talon SRX, like a
+     * {@link com.torontocodingcollective.sensors.encoder.TCanEncoder}, and
+     * counts/second for a SPARK MAX, like a
+     * {@link com.torontocodingcollective.sensors.encoder.TCanSparkEncoder}.
+     * <p>
+     * {@inheritDoc}
+     */
+    @Override
+    public TEncoder getEncoder(boolean isInverted) {
+
+        if (controllerType == TCanSpeedControllerType.VICTOR_SPX) {
+            return null;
+        }
+
+        final double ratePeriod = isSparkMax(controllerType) ? 1.0 : CTRE_RATE_PERIOD;
+
+        return new TEncoder(isInverted) {
+
+            @Override
+            public int get() {
+                synchronized (TVirtualCanDevice.this) {
+                    update();
+                    return super.get((int) Math.round(feedbackPosition));
+                }
+            }
+
+            @Override
+            public double getDistance() {
+                synchronized (TVirtualCanDevice.this) {
+                    update();
+                    return super.getDistance(feedbackPosition);
+                }
+            }
+
+            @Override
+            public double getRate() {
+                synchronized (TVirtualCanDevice.this) {
+                    update();
+                    return super.getRate(feedbackVelocity * ratePeriod);
+                }
+            }
+
+            @Override
+            public double getRatePeriod() {
+                return ratePeriod;
+            }
+        };
+    }
+
+    /**
+     * Get the device being followed
+     *
+     * @return leader, or {@code null} if this device is not following
+     */
+    public synchronized TVirtualCanDevice getLeader() {
+        return leader;
+    }
+
+    /**
+     * Get the neutral mode
+     *
+     * @return {@link TNeutralMode}
+     */
+    public synchronized TNeutralMode getNeutralMode() {
+        return neutralMode;
+    }
+
+    /**
+     * Get the open loop ramp rate
+     *
+     * @return seconds from neutral to full output
+     */
+    public synchronized double getOpenLoopRampRate() {
+        return openLoopRampRate;
+    }
+
+    @Override
+    public synchronized double getOutputCurrent() {
+        update();
+        return current;
+    }
+
+    /**
+     * Get the simulated position of the motor. The position reported by the
+     * encoder lags this position by the feedback period and the latency.
+     *
+     * @return position in encoder counts
+     */
+    public synchronized double getPosition() {
+        update();
+        return position;
+    }
+
+    /**
+     * Get the status frame role
+     *
+     * @return {@link TCanStatusFrameRole}
+     */
+    public synchronized TCanStatusFrameRole getStatusFrameRole() {
+        return role;
+    }
+
+    @Override
+    public synchronized double getTemperature() {
+        update();
+        return temperature;
+    }
+
+    /**
+     * Get the simulated velocity of the motor
+     *
+     * @return velocity in encoder counts/second
+     */
+    public synchronized double getVelocity() {
+        update();
+        return velocity;
+    }
+
+    /**
+     * Get the number of output writes sent to this device
+     *
+     * @return number of writes
+     */
+    public synchronized long getWriteCount() {
+        return writeCount;
+    }
+
+    @Override
+    public synchronized boolean hasStickyFault() {
+        return stickyFault;
+    }
+
+    /**
+     * Send an output to the device. The output is applied after the CAN latency.
+     * <p>
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized void set(double output) {
+
+        update();
+
+        writeCount++;
+
+        // Drop the oldest write if the writes are sent faster than they arrive
+        if (pendingWriteCount == MAX_PENDING_WRITES) {
+            pendingWriteStart = (pendingWriteStart + 1) % MAX_PENDING_WRITES;
+            pendingWriteCount--;
+        }
+
+        int index = (pendingWriteStart + pendingWriteCount) % MAX_PENDING_WRITES;
+
+        pendingWriteTime[index] = simulationTime + factory.getLatency();
+        pendingWriteOutput[index] = Math.max(-1.0, Math.min(1.0, output));
+        pendingWriteCount++;
+    }
+
+    /**
+     * Set the bus voltage
+     *
+     * @param busVoltage
+     *            voltage at the input of the device
+     */
+    public synchronized void setBusVoltage(double busVoltage) {
+        update();
+        this.busVoltage = busVoltage;
+    }
+
+    @Override
+    public synchronized void setClosedLoopRampRate(double secondsFromNeutralToFull) {
+        closedLoopRampRate = secondsFromNeutralToFull;
+    }
+
+    /**
+     * Set the free speed of the motor
+     *
+     * @param freeSpeed
+     *            speed at 12V in encoder counts/second
+     */
+    public synchronized void setFreeSpeed(double freeSpeed) {
+        update();
+        this.freeSpeed = freeSpeed;
+    }
+
+    @Override
+    public synchronized void setNeutralMode(TNeutralMode neutralMode) {
+        update();
+        this.neutralMode = neutralMode;
+    }
+
+    @Override
+    public synchronized void setOpenLoopRampRate(double secondsFromNeutralToFull) {
+        update();
+        openLoopRampRate = secondsFromNeutralToFull;
+    }
+
+    /**
+     * Set the simulated position of the motor
+     *
+     * @param position
+     *            in encoder counts
+     */
+    public synchronized void setPosition(double position) {
+        update();
+        this.position = position;
+    }
+
+    @Override
+    public synchronized void setStatusFrameRole(TCanStatusFrameRole role) {
+        update();
+        this.role = role;
+    }
+
+    /**
+     * Set or clear a sticky fault
+     *
+     * @param stickyFault
+     *            {@code true} to set a sticky fault, {@code false} to clear it
+     */
+    public synchronized void setStickyFault(boolean stickyFault) {
+        this.stickyFault = stickyFault;
+    }
+
+    /**
+     * Set the time constant of the motor
+     *
+     * @param timeConstant
+     *            in seconds
+     */
+    public synchronized void setTimeConstant(double timeConstant) {
+        update();
+        this.timeConstant = Math.max(SIMULATION_STEP, timeConstant);
+    }
+
+    private double getFeedbackPeriod() {
+
+        if (role == TCanStatusFrameRole.LEADER_WITH_FEEDBACK) {
+            return TCanStatusFrames.FAST_PERIOD_MS / 1000.0;
+        }
+
+        return TCanStatusFrames.SLOW_PERIOD_MS / 1000.0;
+    }
+
+    private boolean isSparkMax(TCanSpeedControllerType controllerType) {
+        return controllerType == TCanSpeedControllerType.SPARK_MAX_BRUSHED
+                || controllerType == TCanSpeedControllerType.SPARK_MAX_BRUSHLESS;
+    }
+
+    /**
+     * Advance the simulation to the current time
+     */
+    private void update() {
+        advanceTo(factory.getTime());
+    }
+
+    private synchronized void advanceTo(double time) {
+
+        while (simulationTime < time) {
+
+            double dt = Math.min(SIMULATION_STEP, time - simulationTime);
+
+            simulationTime += dt;
+
+            step(dt);
+        }
+    }
+
+    private void step(double dt) {
+
+        // Apply the writes that have arrived
+        while (pendingWriteCount > 0 && pendingWriteTime[pendingWriteStart] <= simulationTime) {
+            commandedOutput = pendingWriteOutput[pendingWriteStart];
+            pendingWriteStart = (pendingWriteStart + 1) % MAX_PENDING_WRITES;
+            pendingWriteCount--;
+        }
+
+        // Follow the applied output of the leader
+        if (leader != null) {
+            leader.advanceTo(simulationTime);
+            commandedOutput = leader.appliedOutput;
+        }
+
+        // Open loop ramp
+        if (openLoopRampRate > 0 && leader == null) {
+            double maxChange = dt / openLoopRampRate;
+            appliedOutput += Math.max(-maxChange, Math.min(maxChange, commandedOutput - appliedOutput));
+        }
+        else {
+            appliedOutput = commandedOutput;
+        }
+
+        // Motor voltage
+        double motorVoltage;
+
+        if (compensationVoltage > 0) {
+            motorVoltage = appliedOutput * Math.min(compensationVoltage, busVoltage);
+        }
+        else {
+            motorVoltage = appliedOutput * busVoltage;
+        }
+
+        double targetVelocity = freeSpeed * motorVoltage / NOMINAL_VOLTAGE;
+
+        double tau = timeConstant;
+
+        if (appliedOutput == 0 && neutralMode == TNeutralMode.COAST) {
+            tau = COAST_TIME_CONSTANT;
+        }
+
+        velocity += (targetVelocity - velocity) * Math.min(1.0, dt / tau);
+        position += velocity * dt;
+
+        if (appliedOutput == 0) {
+            current = 0;
+        }
+        else {
+            current = STALL_CURRENT * Math.abs(motorVoltage / NOMINAL_VOLTAGE - velocity / freeSpeed);
+        }
+
+        temperature += (current * current * HEATING_RATE - (temperature - AMBIENT_TEMPERATURE) / COOLING_TIME_CONSTANT)
+                * dt;
+
+        // Deliver the feedback frame that has arrived
+        if (frameArrivalTime >= 0 && frameArrivalTime <= simulationTime) {
+            feedbackPosition = pendingFramePosition;
+            feedbackVelocity = pendingFrameVelocity;
+            frameArrivalTime = -1;
+        }
+
+        // Send a feedback frame at the status frame period
+        if (simulationTime >= nextFrameTime) {
+
+            pendingFramePosition = position;
+            pendingFrameVelocity = velocity;
+            frameArrivalTime = simulationTime + factory.getLatency();
+
+            nextFrameTime += getFeedbackPeriod();
+            if (nextFrameTime < simulationTime) {
+                nextFrameTime = simulationTime + getFeedbackPeriod();
+            }
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package com.torontocodingcollective.speedcontroller;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.torontocodingcollective.speedcontroller.TCanSpeedController.TCanSpeedControllerType;
+
+/**
+ * TVirtualCanDeviceFactory creates {@link TVirtualCanDevice} objects so that
+ * the {@link TCanSpeedController} code can be run without a CAN bus, for
+ * example in a unit test or a benchmark on a development machine.
+ * <p>
+ * Set the factory before constructing any speed controllers:
+ *
+ * <pre>
+ * TVirtualCanDeviceFactory factory = new TVirtualCanDeviceFactory();
+ * TCanSpeedController.setDeviceFactory(factory);
+ * </pre>
+ *
+ * The devices can be retrieved by CAN address to check their outputs and to
+ * change the simulated conditions.
+ * <p>
+ * By default the system clock is used. A manual clock can be used for
+ * repeatable tests by calling {@link #setTime(double)} and
+ * {@link #advanceTime(double)}.
+ * <p>
+ * The factory and the virtual devices are thread safe.
+ */
+public class TVirtualCanDeviceFactory implements TCanDeviceFactory {
+
+    /** Default one way CAN latency (seconds) */
+    public static final double                    DEFAULT_LATENCY = 0.002;
+
+    private final Map<Integer, TVirtualCanDevice> devices         = new LinkedHashMap<Integer, TVirtualCanDevice>();
+
+    private double                                latency         = DEFAULT_LATENCY;
+    private double                                manualTime      = -1;
+
+    /**
+     * Advance the manual clock
+     *
+     * @param seconds
+     *            time to advance the clock
+     */
+    public synchronized void advanceTime(double seconds) {
+        setTime(getTime() + seconds);
+    }
+
+    /**
+     * Get the device at the given CAN address
+     *
+     * @param canAddress
+     *            CAN address of the device
+     * @return TVirtualCanDevice, or {@code null} if no device was created at the
+     *         address
+     */
+    public synchronized TVirtualCanDevice getDevice(int canAddress) {
+        return devices.get(canAddress);
+    }
+
+    /**
+     * Get the one way CAN latency
+     *
+     * @return latency in seconds
+     */
+    public synchronized double getLatency() {
+        return latency;
+    }
+
+    /**
+     * Get the current time
+     *
+     * @return the manual time if it has been set, or the system time in seconds
+     */
+    @Override
+    public synchronized double getTime() {
+
+        if (manualTime >= 0) {
+            return manualTime;
+        }
+
+        return System.nanoTime() / 1.0e9;
+    }
+
+    @Override
+    public synchronized TCanDevice newDevice(TCanSpeedControllerType controllerType, int canAddress) {
+
+        if (devices.containsKey(canAddress)) {
+            System.out.println("Duplicate virtual CAN address " + canAddress + ". The device is replaced.");
+        }
+
+        TVirtualCanDevice device = new TVirtualCanDevice(this, controllerType, canAddress);
+
+        devices.put(canAddress, device);
+
+        return device;
+    }
+
+    /**
+     * Set the one way CAN latency. Outputs are applied, and feedback is received,
+     * after this time.
+     *
+     * @param latency
+     *            in seconds
+     */
+    public synchronized void setLatency(double latency) {
+
+        if (latency < 0) {
+            System.out.println("Invalid CAN latency " + latency + ". Latency ignored.");
+            return;
+        }
+
+        this.latency = latency;
+    }
+
+    /**
+     * Set the manual clock. Once set, the manual clock is used instead of the
+     * system time.
+     *
+     * @param time
+     *            in seconds, must be greater than or equal to the current time
+     */
+    public synchronized void setTime(double time) {
+
+        if (manualTime >= 0 && time < manualTime) {
+            System.out.println("The virtual CAN time cannot go backwards. Time ignored.");
+            return;
+        }
+
+        manualTime = time;
+    }
+}
@@ -1,9 +1,9 @@
 package com.torontocodingcollective.subsystem;
 
-import com.torontocodingcollective.TUtil;
 import com.torontocodingcollective.pid.TSpeedPID;
 import com.torontocodingcollective.sensors.encoder.TEncoder;
 import com.torontocodingcollective.speedcontroller.TSpeedController;
+import com.torontocodingcollective.speedcontroller.TSpeedController.TNeutralMode;
 import com.torontocodingcollective.speedcontroller.TSpeeds;
 import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
 
@@ -16,7 +16,18 @@ import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
 public abstract class TDriveSubsystem extends TSubsystem {
 
     public enum TSide { LEFT, RIGHT }
-    
+
+    // Encoder health checks are only made when the motor output
+    // is at least this value
+    private static final double      ENCODER_CHECK_MIN_OUTPUT = 0.3;
+    // Fraction of the max encoder speed considered moving
+    private static final double      ENCODER_MOVING_FRACTION  = 0.25;
+    // Fraction of the max encoder speed considered stopped
+    private static final double      ENCODER_STOPPED_FRACTION = 0.05;
+    // Number of consecutive bad checks before an encoder is faulted,
+    // and good checks before a faulted encoder is used again
+    private static final int         ENCODER_FAULT_COUNT      = 25;
+
     protected final TSpeedController leftSpeedController;
     protected final TSpeedController rightSpeedController;
 
@@ -31,6 +42,19 @@ public abstract class TDriveSubsystem extends TSubsystem {
 
     boolean                          speedPidsEnabled     = false;
 
+    private boolean                  leftEncoderFaulted   = false;
+    private boolean                  rightEncoderFaulted  = false;
+    private int                      leftEncoderBadCount  = 0;
+    private int                      rightEncoderBadCount = 0;
+    private int                      encoderGoodCount     = 0;
+    // Keeps the distance continuous when switching encoders
+    private double                   faultDistanceOffset  = 0;
+    // The speed PIDs are enabled when the encoder fault clears
+    private boolean                  speedPidsSuspended   = false;
+
+    // Default neutral mode, or null if it was never set
+    private TNeutralMode             neutralMode          = null;
+
     /**
      * Drive subsystem with left/right drive.
      * <p>
@@ -104,6 +128,8 @@ public abstract class TDriveSubsystem extends TSubsystem {
      */
     public void disableSpeedPids() {
 
+        speedPidsSuspended = false;
+
         if (speedPidsEnabled) {
             leftSpeedPid.disable();
             rightSpeedPid.disable();
@@ -119,7 +145,9 @@ public abstract class TDriveSubsystem extends TSubsystem {
      * motor speeds after enabling the PIDs
      * <p>
      * NOTE: If the speed PIDs are already enabled, this routine has no effect. <br>
-     * NOTE: If there are no encoders, speed pids cannot be enabled
+     * NOTE: If there are no encoders, speed pids cannot be enabled <br>
+     * NOTE: If an encoder is faulted, the speed pids are enabled when the fault
+     * clears
      */
     public void enableSpeedPids() {
 
@@ -132,6 +160,13 @@ public abstract class TDriveSubsystem extends TSubsystem {
             return;
         }
 
+        // If an encoder is faulted, then the PID cannot be used
+        // until the fault clears
+        if (leftEncoderFaulted || rightEncoderFaulted) {
+            speedPidsSuspended = true;
+            return;
+        }
+
         // If the proportional gain is not set, then do not enable the PID
         if (leftSpeedPid.getP() == 0 || rightSpeedPid.getP() == 0) {
             return;
@@ -150,18 +185,29 @@ public abstract class TDriveSubsystem extends TSubsystem {
      * The drive subsystem must have encoders and must have an non-zero encoder
      * counts per inch {@see #setEncoderCountsPerInch(double)} in order to return
      * the distance in inches
+     * <p>
+     * The distance is calculated from the full precision encoder distance
+     * {@link TEncoder#getDistance()} and is not rounded. If one of the encoders
+     * is faulted, only the other encoder is used.
      * 
      * @return double containing the encoder distance in inches or the raw encoder
-     *         counts if the encoder counts per inch are not set.
+     *         counts if the encoder counts per inch are not set, or -1 if there
+     *         are no encoders.
      */
     public double getDistanceInches() {
 
+        if (leftEncoder == null || rightEncoder == null) {
+            return -1;
+        }
+
+        // Use the full precision encoder distance
+        double encoderDistance = getEncoderDistanceCounts();
+
         if (encoderCountsPerInch == 0) {
-            return getEncoderDistance();
+            return encoderDistance;
         }
-        
-        // Round to 2 decimal places
-        return TUtil.round(getEncoderDistance() / encoderCountsPerInch, 2);
+
+        return encoderDistance / encoderCountsPerInch;
     }
 
     /** 
@@ -192,10 +238,28 @@ public abstract class TDriveSubsystem extends TSubsystem {
         }
     }
     
+    /**
+     * Clear the encoder faults and use both encoders again.
+     * <p>
+     * Encoder faults are cleared automatically when the faulted encoder agrees
+     * with the other encoder again.
+     */
+    public void clearEncoderFaults() {
+
+        if (leftEncoderFaulted) {
+            clearEncoderFault(TSide.LEFT);
+        }
+
+        if (rightEncoderFaulted) {
+            clearEncoderFault(TSide.RIGHT);
+        }
+    }
+
     /**
      * Get the raw distance covered since the last encoder reset
      * <p>
      * The distance returned is the average distance of the left and right encoders.
+     * If one of the encoders is faulted, only the other encoder is used.
      * 
      * @return average of the left and right distance in counts or -1 if there are
      *         no encoders.
@@ -206,11 +270,32 @@ public abstract class TDriveSubsystem extends TSubsystem {
             return -1;
         }
 
-        return (leftEncoder.get() + rightEncoder.get()) / 2;
+        return (int) getEncoderDistanceCounts();
+    }
+
+    /**
+     * Get the full precision distance from the healthy encoders
+     * 
+     * @return distance in encoder counts
+     */
+    private double getEncoderDistanceCounts() {
+
+        if (leftEncoderFaulted && !rightEncoderFaulted) {
+            return rightEncoder.getDistance() + faultDistanceOffset;
+        }
+
+        if (rightEncoderFaulted && !leftEncoderFaulted) {
+            return leftEncoder.getDistance() + faultDistanceOffset;
+        }
+
+        return (leftEncoder.getDistance() + rightEncoder.getDistance()) / 2.0d + faultDistanceOffset;
     }
 
     /**
-     * Get the average speed of the left and right encoders in counts/second
+     * Get the average speed of the left and right encoders in the rate units of
+     * the encoders {@link TEncoder#getRate()}
+     * <p>
+     * If one of the encoders is faulted, only the other encoder is used.
      * 
      * @return average of the left and right motor speeds or -1 if there are no
      *         encoders.
@@ -221,9 +306,41 @@ public abstract class TDriveSubsystem extends TSubsystem {
             return -1;
         }
 
+        if (leftEncoderFaulted && !rightEncoderFaulted) {
+            return rightEncoder.getRate();
+        }
+
+        if (rightEncoderFaulted && !leftEncoderFaulted) {
+            return leftEncoder.getRate();
+        }
+
         return (leftEncoder.getRate() + rightEncoder.getRate()) / 2.0d;
     }
 
+    /**
+     * Indicates whether the encoder on the specified side is faulted
+     * <p>
+     * An encoder is faulted if it does not move or moves in the wrong direction
+     * when the motor is driven and the other encoder is moving with its motor.
+     * The fault clears when the encoders agree again.
+     * 
+     * @param side
+     *            {@link TSide#LEFT} or {@link TSide#RIGHT}
+     * @return {@code true} if the encoder is faulted, {@code false} otherwise
+     */
+    public boolean isEncoderFaulted(TSide side) {
+
+        if (side == TSide.LEFT) {
+            return leftEncoderFaulted;
+        }
+
+        if (side == TSide.RIGHT) {
+            return rightEncoderFaulted;
+        }
+
+        return false;
+    }
+
     /**
      * Reset the encoder counts on the encoders.
      */
@@ -235,6 +352,8 @@ public abstract class TDriveSubsystem extends TSubsystem {
 
         leftEncoder.reset();
         rightEncoder.reset();
+
+        faultDistanceOffset = 0;
     }
 
     /**
@@ -325,6 +444,16 @@ public abstract class TDriveSubsystem extends TSubsystem {
         }
     }
 
+    /**
+     * Get the max encoder speed used to normalize the speed PID input
+     * 
+     * @return max encoder speed in the rate units of the encoders
+     *         {@link TEncoder#getRate()}
+     */
+    public double getMaxEncoderSpeed() {
+        return maxEncoderSpeed;
+    }
+
     /**
      * Set the max encoder speed on the encoders. This routine would be used when
      * there is a gear shifting robot and the max encoder speed changes between the
@@ -360,6 +489,47 @@ public abstract class TDriveSubsystem extends TSubsystem {
         setSpeedPidGain(kP, kI);
     }
 
+    /**
+     * Set the default neutral mode of the left and right speed controllers. The
+     * neutral mode is used whenever the motor output is zero.
+     * 
+     * @param neutralMode
+     *            {@link TNeutralMode#BRAKE} to stop quickly, or
+     *            {@link TNeutralMode#COAST} to coast to a stop
+     */
+    public void setNeutralMode(TNeutralMode neutralMode) {
+        this.neutralMode = neutralMode;
+        leftSpeedController.setNeutralMode(neutralMode);
+        rightSpeedController.setNeutralMode(neutralMode);
+    }
+
+    /**
+     * Stop the motors in brake mode
+     * <p>
+     * The brake mode is used until the default neutral mode is restored with
+     * {@link #restoreNeutralMode()}. Commands that brake when finished call this
+     * routine when they end, and all drive commands restore the default neutral
+     * mode when they start.
+     */
+    public void stopAndBrake() {
+        leftSpeedController.setNeutralMode(TNeutralMode.BRAKE);
+        rightSpeedController.setNeutralMode(TNeutralMode.BRAKE);
+        setSpeed(0, 0);
+    }
+
+    /**
+     * Restore the default neutral mode set with
+     * {@link #setNeutralMode(TNeutralMode)}
+     * <p>
+     * NOTE: If the default neutral mode was never set, this routine has no effect
+     */
+    public void restoreNeutralMode() {
+        if (neutralMode != null) {
+            leftSpeedController.setNeutralMode(neutralMode);
+            rightSpeedController.setNeutralMode(neutralMode);
+        }
+    }
+
     /**
      * Set the speeds on the motors. This command will be used to set the setpoint
      * of the controller if the PIDs are enabled, or to set the left and right motor
@@ -422,12 +592,167 @@ public abstract class TDriveSubsystem extends TSubsystem {
         return speedPidsEnabled;
     }
 
+    /**
+     * Check the encoders against the motor outputs and against each other.
+     * <p>
+     * An encoder is only checked when the other side is moving in the direction
+     * of its motor output. The encoder is dead if it is stopped while its motor
+     * is driven, and is reversed if it moves against its motor output. When an
+     * encoder is faulted, only the other encoder is used and the speed PIDs are
+     * suspended. The fault clears when both encoders move in the direction of
+     * their motor outputs again.
+     */
+    private void checkEncoderHealth() {
+
+        double leftOutput = leftSpeedController.get();
+        double rightOutput = rightSpeedController.get();
+        double leftRate = leftEncoder.getRate();
+        double rightRate = rightEncoder.getRate();
+
+        // Only one encoder can be faulted at a time. Check whether
+        // the faulted encoder agrees with the other encoder again.
+        if (leftEncoderFaulted || rightEncoderFaulted) {
+
+            boolean good = isMovingWithOutput(leftOutput, leftRate)
+                    && isMovingWithOutput(rightOutput, rightRate);
+
+            encoderGoodCount = good ? encoderGoodCount + 1 : 0;
+
+            if (encoderGoodCount >= ENCODER_FAULT_COUNT) {
+                clearEncoderFault(leftEncoderFaulted ? TSide.LEFT : TSide.RIGHT);
+            }
+
+            return;
+        }
+
+        // The left and right checks require the other side to agree
+        // with its output, so both sides cannot be bad at once.
+        String leftFault = getEncoderFault(leftOutput, leftRate, rightOutput, rightRate);
+        String rightFault = getEncoderFault(rightOutput, rightRate, leftOutput, leftRate);
+
+        leftEncoderBadCount = leftFault == null ? 0 : leftEncoderBadCount + 1;
+        rightEncoderBadCount = rightFault == null ? 0 : rightEncoderBadCount + 1;
+
+        if (leftEncoderBadCount >= ENCODER_FAULT_COUNT) {
+            setEncoderFault(TSide.LEFT, leftFault);
+        } else if (rightEncoderBadCount >= ENCODER_FAULT_COUNT) {
+            setEncoderFault(TSide.RIGHT, rightFault);
+        }
+    }
+
+    /**
+     * Clear the encoder fault on one side and use both encoders again
+     */
+    private void clearEncoderFault(TSide side) {
+
+        // Keep the distance continuous when changing to both encoders
+        double distance = getEncoderDistanceCounts();
+
+        if (side == TSide.LEFT) {
+            leftEncoderFaulted = false;
+        } else {
+            rightEncoderFaulted = false;
+        }
+
+        faultDistanceOffset = 0;
+        faultDistanceOffset = distance - getEncoderDistanceCounts();
+
+        leftEncoderBadCount = 0;
+        rightEncoderBadCount = 0;
+        encoderGoodCount = 0;
+
+        System.out.println(side + " drive encoder fault cleared. Using both encoders.");
+
+        // Resume the speed PIDs at the current motor outputs
+        if (speedPidsSuspended) {
+
+            double leftOutput = leftSpeedController.get();
+            double rightOutput = rightSpeedController.get();
+
+            speedPidsSuspended = false;
+
+            enableSpeedPids();
+            setSpeed(leftOutput, rightOutput);
+
+            System.out.println("Speed PIDs enabled.");
+        }
+    }
+
+    /**
+     * Get the encoder fault for one side
+     * 
+     * @return fault description, or {@code null} if there is no fault
+     */
+    private String getEncoderFault(double output, double rate, double otherOutput, double otherRate) {
+
+        if (Math.abs(output) < ENCODER_CHECK_MIN_OUTPUT) {
+            return null;
+        }
+
+        // A fault can only be detected if the other side shows that
+        // the robot is moving as driven. If both sides move against
+        // the outputs, the robot is being pushed or is changing
+        // direction.
+        if (!isMovingWithOutput(otherOutput, otherRate)) {
+            return null;
+        }
+
+        if (rate * output < 0 && Math.abs(rate) >= ENCODER_MOVING_FRACTION * maxEncoderSpeed) {
+            return "reversed";
+        }
+
+        if (Math.abs(rate) <= ENCODER_STOPPED_FRACTION * maxEncoderSpeed) {
+            return "dead";
+        }
+
+        return null;
+    }
+
+    /**
+     * Indicates whether an encoder is moving in the direction of the motor output
+     */
+    private boolean isMovingWithOutput(double output, double rate) {
+        return Math.abs(output) >= ENCODER_CHECK_MIN_OUTPUT
+                && rate * output > 0
+                && Math.abs(rate) >= ENCODER_MOVING_FRACTION * maxEncoderSpeed;
+    }
+
+    private void setEncoderFault(TSide side, String fault) {
+
+        // Keep the distance continuous when changing to one encoder
+        double distance = getEncoderDistanceCounts();
+
+        if (side == TSide.LEFT) {
+            leftEncoderFaulted = true;
+        } else {
+            rightEncoderFaulted = true;
+        }
+
+        faultDistanceOffset = 0;
+        faultDistanceOffset = distance - getEncoderDistanceCounts();
+
+        leftEncoderBadCount = 0;
+        rightEncoderBadCount = 0;
+        encoderGoodCount = 0;
+
+        System.out.println(side + " drive encoder " + fault + ". Using the other encoder only.");
+
+        // The speed PIDs cannot run without both encoders
+        if (speedPidsEnabled) {
+            System.out.println("Speed PIDs suspended due to the encoder fault.");
+            disableSpeedPids();
+            speedPidsSuspended = true;
+        }
+    }
+
     @Override
     public void updatePeriodic() {
 
         // Only update the encoders and pids if there are encoders.
         if (leftEncoder != null && rightEncoder != null) {
 
+            checkEncoderHealth();
+
             // Update all of the PIDS
             if (speedPidsEnabled) {
 
@@ -450,6 +775,8 @@ public abstract class TDriveSubsystem extends TSubsystem {
             SmartDashboard.putNumber("Dist Inches", getDistanceInches());
 
             SmartDashboard.putBoolean("Speed PIDs Active", speedPidsEnabled);
+            SmartDashboard.putBoolean("L Enc Fault", leftEncoderFaulted);
+            SmartDashboard.putBoolean("R Enc Fault", rightEncoderFaulted);
             SmartDashboard.putData("LeftPid", leftSpeedPid);
             SmartDashboard.putData("RightPid", rightSpeedPid);
         }
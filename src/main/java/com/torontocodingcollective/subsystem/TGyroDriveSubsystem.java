@@ -2,7 +2,9 @@ package com.torontocodingcollective.subsystem;
 
 import com.torontocodingcollective.pid.TGyroPID;
 import com.torontocodingcollective.sensors.encoder.TEncoder;
+import com.torontocodingcollective.sensors.gyro.TFusedGyro;
 import com.torontocodingcollective.sensors.gyro.TGyro;
+import com.torontocodingcollective.sensors.gyro.TGyroBiasEstimator;
 import com.torontocodingcollective.speedcontroller.TSpeedController;
 import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
 
@@ -12,12 +14,37 @@ public abstract class TGyroDriveSubsystem extends TDriveSubsystem {
         DRIVE_ON_HEADING, ROTATE_TO_HEADING, DISABLED
     };
 
-    protected TGyro  gyro;
-    private TGyroPID gyroPid;
+    /**
+     * The heading is not captured for heading hold until the robot has stopped
+     * rotating (degrees/second)
+     */
+    private static final double HEADING_HOLD_CAPTURE_RATE = 10.0;
+
+    /**
+     * Once the robot is driving in one direction on a field heading, the other
+     * direction is only chosen if it requires this many degrees less rotation
+     */
+    private static final double FIELD_HEADING_HYSTERESIS  = 10.0;
+
+    /**
+     * The robot is considered still for the gyro bias estimate if both encoder
+     * rates are below this fraction of the max encoder speed
+     */
+    private static final double GYRO_BIAS_STILL_FRACTION  = 0.02;
+
+    protected TGyro             gyro;
+    private TGyroPID            gyroPid;
+    private TGyroBiasEstimator  gyroBiasEstimator         = null;
+
+    private double              maxRotationOutput;
+    private double              speedSetpoint             = 0;
+    private Mode                mode;
+
+    private boolean             headingHoldActive         = false;
+    private double              headingHoldHeading        = 0;
 
-    private double   maxRotationOutput;
-    private double   speedSetpoint = 0;
-    private Mode     mode;
+    private boolean             fieldHeadingActive        = false;
+    private boolean             fieldHeadingReverse       = false;
 
     /**
      * Drive subsystem with left/right drive and gyro.
@@ -124,6 +151,8 @@ public abstract class TGyroDriveSubsystem extends TDriveSubsystem {
         gyroPid.disable();
         this.speedSetpoint = 0;
         this.mode = Mode.DISABLED;
+        this.headingHoldActive = false;
+        this.fieldHeadingActive = false;
     }
 
     /**
@@ -135,7 +164,8 @@ public abstract class TGyroDriveSubsystem extends TDriveSubsystem {
      * enabled when the angle is within 20 degrees of the target.
      * 
      * @param speedSetpoint
-     *            0 < speed < 1.0 negative speeds are not allowed
+     *            -1.0 < speed < 1.0 negative speeds drive the robot in reverse
+     *            along the heading
      * @param heading
      *            to drive at 0 <= heading < 360
      */
@@ -155,6 +185,66 @@ public abstract class TGyroDriveSubsystem extends TDriveSubsystem {
         enableGyroPid(heading);
     }
 
+    /**
+     * Drive the robot along the specified field heading at the specified speed.
+     * <p>
+     * The robot will drive forward or in reverse along the heading, whichever
+     * requires the least rotation to align the robot with the heading. Use
+     * {@link #releaseHeadingHold()} to stop driving on the field heading.
+     * 
+     * <p>
+     * If the gyro PID gains are not set, the motors are driven directly at the
+     * specified speed.
+     * 
+     * @param speedSetpoint
+     *            0 <= speed <= 1.0
+     * @param heading
+     *            field heading to drive along 0 <= heading < 360
+     */
+    public void driveOnFieldHeading(double speedSetpoint, double heading) {
+
+        if (!isGyroPidGainSet()) {
+            setSpeed(speedSetpoint, speedSetpoint);
+            return;
+        }
+
+        // Get the rotation required to drive forward on the heading
+        // normalized to the range -180 to +180.
+        double forwardError = (heading - gyro.getAngle()) % 360.0;
+
+        if (forwardError > 180) {
+            forwardError -= 360.0;
+        }
+        if (forwardError < -180) {
+            forwardError += 360.0;
+        }
+
+        // Prefer the current direction when the required rotation
+        // is close to 90 degrees so that the robot does not switch
+        // back and forth between forward and reverse.
+        double reverseThreshold = 90.0;
+
+        if (fieldHeadingActive) {
+            if (fieldHeadingReverse) {
+                reverseThreshold -= FIELD_HEADING_HYSTERESIS;
+            } else {
+                reverseThreshold += FIELD_HEADING_HYSTERESIS;
+            }
+        }
+
+        fieldHeadingReverse = Math.abs(forwardError) > reverseThreshold;
+
+        if (fieldHeadingReverse) {
+            heading = (heading + 180.0) % 360.0;
+            speedSetpoint = -speedSetpoint;
+        }
+
+        headingHoldActive = false;
+        fieldHeadingActive = true;
+
+        driveOnHeading(speedSetpoint, heading);
+    }
+
     /**
      * Enable the gyroPID with the specified heading as a setpoint
      * 
@@ -213,6 +303,36 @@ public abstract class TGyroDriveSubsystem extends TDriveSubsystem {
         return gyro.getRate();
     }
 
+    /**
+     * Stop updating the gyro bias estimate.
+     * <p>
+     * The estimate should be frozen when the robot is enabled. The estimated
+     * drift rate continues to be removed from the gyro angle.
+     */
+    public void freezeGyroBiasEstimate() {
+        getGyroBiasEstimator().freeze();
+    }
+
+    private TGyroBiasEstimator getGyroBiasEstimator() {
+
+        // Create the estimator on first use in case the gyro
+        // was replaced by a subclass after construction
+        if (gyroBiasEstimator == null) {
+
+            // The bias of a fused gyro is only partly visible in the
+            // fused heading, so estimate the bias of the raw gyro.
+            TGyro biasGyro = gyro;
+
+            if (gyro instanceof TFusedGyro) {
+                biasGyro = ((TFusedGyro) gyro).getGyro();
+            }
+
+            gyroBiasEstimator = new TGyroBiasEstimator(biasGyro);
+        }
+
+        return gyroBiasEstimator;
+    }
+
     /**
      * Set the current gyro heading to zero.
      */
@@ -294,7 +414,10 @@ public abstract class TGyroDriveSubsystem extends TDriveSubsystem {
             // Reset the integral error
             gyroPid.reset();
 
-            // Limit the rotation to the max rotation speed
+            // Limit the rotation to the max rotation speed.
+            // When driving in reverse, rotate using the
+            // magnitude of the speed.
+            leftSpeed = Math.abs(leftSpeed);
             if (leftSpeed > maxRotationOutput) {
                 leftSpeed = maxRotationOutput;
             }
@@ -317,13 +440,28 @@ public abstract class TGyroDriveSubsystem extends TDriveSubsystem {
         steering = gyroPid.get();
 
         // When steering with the gyroPid, one of the
-        // wheels is slowed proportional to the steering
-        if (steering > 0) {
-            rightSpeed = leftSpeed * (1.0 - steering);
-        }
+        // wheels is slowed proportional to the steering.
+        // When driving in reverse, the opposite wheel is
+        // slowed to turn the robot in the same direction.
+        if (speedSetpoint >= 0) {
 
-        if (steering < 0) {
-            leftSpeed = rightSpeed * (1.0 + steering);
+            if (steering > 0) {
+                rightSpeed = leftSpeed * (1.0 - steering);
+            }
+
+            if (steering < 0) {
+                leftSpeed = rightSpeed * (1.0 + steering);
+            }
+
+        } else {
+
+            if (steering > 0) {
+                leftSpeed = rightSpeed * (1.0 - steering);
+            }
+
+            if (steering < 0) {
+                rightSpeed = leftSpeed * (1.0 + steering);
+            }
         }
 
         setSpeed(leftSpeed, rightSpeed);
@@ -331,6 +469,81 @@ public abstract class TGyroDriveSubsystem extends TDriveSubsystem {
         return steering;
     }
 
+    /**
+     * Drive at the specified speed while holding the current heading.
+     * <p>
+     * The heading is captured the first time this routine is called after the
+     * robot stops rotating, and the robot is driven on that heading using
+     * {@link #driveOnHeading(double, double)} until the heading hold is released
+     * with {@link #releaseHeadingHold()}. While the robot is still rotating, the
+     * motors are driven directly at the specified speed.
+     * <p>
+     * If the gyro PID gains are not set, the motors are driven directly at the
+     * specified speed.
+     * 
+     * @param speedSetpoint
+     *            -1.0 <= speed <= 1.0
+     */
+    public void holdHeading(double speedSetpoint) {
+
+        if (!isGyroPidGainSet()) {
+            setSpeed(speedSetpoint, speedSetpoint);
+            return;
+        }
+
+        if (!headingHoldActive) {
+
+            // Wait for the robot to stop rotating before capturing
+            // the heading so that the robot does not snap back to the
+            // heading where the driver released the rotation input.
+            if (Math.abs(gyro.getRate()) > HEADING_HOLD_CAPTURE_RATE) {
+                setSpeed(speedSetpoint, speedSetpoint);
+                return;
+            }
+
+            headingHoldHeading = gyro.getAngle();
+            headingHoldActive = true;
+            fieldHeadingActive = false;
+        }
+
+        driveOnHeading(speedSetpoint, headingHoldHeading);
+    }
+
+    /**
+     * Indicates whether the gyro PID gains are set
+     * <p>
+     * The gyro PID cannot steer the robot until the Kp or Ki gain is set.
+     * 
+     * @return {@code true} if the Kp or Ki gain is non-zero, {@code false}
+     *         otherwise
+     */
+    public boolean isGyroPidGainSet() {
+        return gyroPid.getP() != 0 || gyroPid.getI() != 0;
+    }
+
+    /**
+     * Indicates whether the heading hold is currently engaged
+     * 
+     * @return {@code true} if the robot is holding a captured heading,
+     *         {@code false} otherwise
+     */
+    public boolean isHeadingHoldActive() {
+        return headingHoldActive;
+    }
+
+    /**
+     * Release the heading hold or field heading and disable the gyro PID.
+     * <p>
+     * NOTE: If neither the heading hold {@link #holdHeading(double)} nor the field
+     * heading {@link #driveOnFieldHeading(double, double)} is active, this routine
+     * has no effect
+     */
+    public void releaseHeadingHold() {
+        if (headingHoldActive || fieldHeadingActive) {
+            disableGyroPid();
+        }
+    }
+
     /**
      * Reset the gyro angle to a known heading angle.
      * <p>
@@ -423,6 +636,33 @@ public abstract class TGyroDriveSubsystem extends TDriveSubsystem {
         return steering;
     }
 
+    /**
+     * Update the gyro bias estimate
+     * <p>
+     * This routine should be called from {@code disabledPeriodic}. The drift of
+     * the gyro is only measured when the encoders show that the robot is still.
+     * If there are no encoders, the robot is assumed to be still.
+     * <p>
+     * Calling this routine after {@link #freezeGyroBiasEstimate()} resumes the
+     * bias estimate.
+     */
+    public void updateGyroBiasEstimate() {
+
+        boolean isStill = true;
+
+        if (leftEncoder != null && rightEncoder != null) {
+            double stillRate = GYRO_BIAS_STILL_FRACTION * getMaxEncoderSpeed();
+
+            isStill = Math.abs(leftEncoder.getRate()) <= stillRate
+                    && Math.abs(rightEncoder.getRate()) <= stillRate;
+        }
+
+        TGyroBiasEstimator estimator = getGyroBiasEstimator();
+
+        estimator.unfreeze();
+        estimator.update(isStill);
+    }
+
     @Override
     public void updatePeriodic() {
 
@@ -441,12 +681,14 @@ public abstract class TGyroDriveSubsystem extends TDriveSubsystem {
         }
 
         SmartDashboard.putNumber("Gyro Steering", steering);
+        SmartDashboard.putBoolean("Heading Hold", headingHoldActive);
 
         super.updatePeriodic();
 
         // Update all SmartDashboard values
         SmartDashboard.putData("Gyro", gyro);
         SmartDashboard.putNumber("Gyro Angle", getGryoAngle());
+        SmartDashboard.putNumber("Gyro Drift Rate", getGyroBiasEstimator().getDriftRate());
 
         SmartDashboard.putData("Gyro PID", gyroPid);
 
@@ -4,6 +4,8 @@ package robot;
 import java.util.ArrayList;
 import java.util.List;
 
+import com.torontocodingcollective.speedcontroller.TCanHealthMonitor;
+import com.torontocodingcollective.speedcontroller.TCanStatusFrames;
 import com.torontocodingcollective.subsystem.TSubsystem;
 
 import edu.wpi.first.wpilibj.IterativeRobot;
@@ -33,6 +35,9 @@ public class Robot extends IterativeRobot {
     public static final PowerSubsystem      powerSubsystem      = new PowerSubsystem();
     public static final CameraSubsystem     cameraSubsystem     = new CameraSubsystem();
 
+    public static final TCanHealthMonitor   canHealthMonitor    = new TCanHealthMonitor(
+            RobotConst.CAN_HEALTH_MONITOR_PERIOD);
+
     public static OI                        oi;
 
     private Command                         autoCommand;
@@ -60,6 +65,12 @@ public class Robot extends IterativeRobot {
         }
         
         AutoSelector.init();
+
+        // Report the CAN bus load from the speed controller status frames
+        System.out.println(TCanStatusFrames.getBusUtilizationReport());
+
+        // Monitor the speed controller health in the background
+        canHealthMonitor.start();
     }
 
     /**
@@ -70,6 +81,8 @@ public class Robot extends IterativeRobot {
     @Override
     public void disabledInit() {
 
+        // Allow the robot to be pushed while disabled
+        driveSubsystem.setNeutralMode(RobotConst.DRIVE_DISABLED_NEUTRAL_MODE);
     }
 
     @Override
@@ -77,6 +90,9 @@ public class Robot extends IterativeRobot {
 
         oi.updatePeriodic();
 
+        // Track the gyro drift while the robot is sitting still
+        driveSubsystem.updateGyroBiasEstimate();
+
         Scheduler.getInstance().run();
         updatePeriodic();
     }
@@ -95,10 +111,16 @@ public class Robot extends IterativeRobot {
     @Override
     public void autonomousInit() {
 
+        // Stop estimating the gyro drift once the robot can move
+        driveSubsystem.freezeGyroBiasEstimate();
+
         // Turn on the drive pids for auto
         Robot.oi.setSpeedPidEnabled(true);
         driveSubsystem.enableSpeedPids();
 
+        // Brake between auto segments for shorter stopping distances
+        driveSubsystem.setNeutralMode(RobotConst.DRIVE_AUTO_NEUTRAL_MODE);
+
         // Reset the gyro and the encoders
         Robot.driveSubsystem.setGyroAngle(0);
         Robot.driveSubsystem.resetEncoders();
@@ -127,6 +149,8 @@ public class Robot extends IterativeRobot {
     @Override
     public void teleopInit() {
 
+        driveSubsystem.freezeGyroBiasEstimate();
+
         if (autoCommand != null) {
             autoCommand.cancel();
         }
@@ -136,6 +160,7 @@ public class Robot extends IterativeRobot {
         // SpeedController built in braking.
         Robot.oi.setSpeedPidEnabled(false);
         driveSubsystem.disableSpeedPids();
+        driveSubsystem.setNeutralMode(RobotConst.DRIVE_TELEOP_NEUTRAL_MODE);
 
     }
 
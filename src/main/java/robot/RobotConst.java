@@ -1,5 +1,7 @@
 package robot;
 
+import com.torontocodingcollective.speedcontroller.TSpeedController.TNeutralMode;
+
 public class RobotConst {
 
     public static final String  TEST_ROBOT                    = "TestRobot";
@@ -19,9 +21,35 @@ public class RobotConst {
 
     public static final double  DRIVE_SPEED_PID_KP;
     public static final double  DRIVE_SPEED_PID_KI;
+
+    // Voltage applied to the drive motors at full output so that
+    // open loop drive commands are repeatable as the battery drains.
+    // Set to 0 to disable voltage compensation.
+    public static final double  DRIVE_VOLTAGE_COMPENSATION    = 11.0;
+
+    // Minimum time for the drive motors to ramp from zero to full
+    // output (seconds). Set to 0 to disable the ramp.
+    public static final double  DRIVE_OPEN_LOOP_RAMP          = 0.1;
+    public static final double  DRIVE_CLOSED_LOOP_RAMP        = 0.0;
+
+    // Drive motor neutral mode in each robot mode
+    public static final TNeutralMode DRIVE_AUTO_NEUTRAL_MODE     = TNeutralMode.BRAKE;
+    public static final TNeutralMode DRIVE_TELEOP_NEUTRAL_MODE   = TNeutralMode.BRAKE;
+    public static final TNeutralMode DRIVE_DISABLED_NEUTRAL_MODE = TNeutralMode.COAST;
     
     public static final double  ENCODER_COUNTS_PER_INCH;
 
+    // Distance between the centres of the left and right wheels
+    // used to calculate the heading from the drive encoders
+    public static final double  DRIVE_TRACK_WIDTH_INCHES;
+
+    // *********************************************************
+    // CAN Speed Controller Health Monitor
+    // *********************************************************
+    // Time between samples of the speed controller temperature,
+    // voltage, current and faults (seconds)
+    public static final double  CAN_HEALTH_MONITOR_PERIOD     = 0.5;
+
     // *********************************************************
     // For Ultrasonic Calibration
     // *********************************************************
@@ -46,7 +74,7 @@ public class RobotConst {
 
             // The low gear speed should be set just below the 
             // maximum loaded speed of the robot
-            MAX_LOW_GEAR_SPEED = 320.0; // Encoder counts/sec
+            MAX_LOW_GEAR_SPEED = 320.0; // Encoder counts/100ms
             MAX_HIGH_GEAR_SPEED = 900.0;
 
             // Typically set the integral gain at 1/20 of the 
@@ -61,6 +89,8 @@ public class RobotConst {
  
             ENCODER_COUNTS_PER_INCH = 55.6;
 
+            DRIVE_TRACK_WIDTH_INCHES = 24.0;
+
             break;
         }
 
@@ -3,6 +3,8 @@ package robot.commands;
 import com.torontocodingcollective.TConst;
 import com.torontocodingcollective.commands.drive.TDriveTimeCommand;
 import com.torontocodingcollective.commands.gyroDrive.TDriveOnHeadingDistanceCommand;
+import com.torontocodingcollective.commands.gyroDrive.TDriveSegment;
+import com.torontocodingcollective.commands.gyroDrive.TDriveSegmentsCommand;
 import com.torontocodingcollective.commands.gyroDrive.TRotateToHeadingCommand;
 
 import edu.wpi.first.wpilibj.command.CommandGroup;
@@ -115,5 +117,25 @@ public class AutonomousCommand extends CommandGroup {
             this.addSequential(new TRotateToHeadingCommand(0, 
                             Robot.oi, Robot.driveSubsystem));
         }
+
+        /* ***********************************************************
+        *  Drive forward 2ft and then drive a 3ft box pattern as one
+        *  continuous path with arcs at the corners
+        *  ***********************************************************/
+        if (pattern.equals(AutoSelector.PATTERN_BOX_CHAIN)) {
+
+            TDriveSegment[] boxSegments = {
+                    new TDriveSegment(60, 0),
+                    new TDriveSegment(36, 90),
+                    new TDriveSegment(36, 180),
+                    new TDriveSegment(36, 270) };
+
+            this.addSequential(
+                    new TDriveSegmentsCommand(boxSegments, .5, 15, TConst.BRAKE_WHEN_FINISHED,
+                            Robot.oi, Robot.driveSubsystem));
+
+            this.addSequential(new TRotateToHeadingCommand(0, 
+                            Robot.oi, Robot.driveSubsystem));
+        }
     }
 }
@@ -7,6 +7,7 @@ import com.torontocodingcollective.oi.TStickPosition;
 import com.torontocodingcollective.speedcontroller.TSpeeds;
 
 import robot.Robot;
+import robot.oi.DriveControlType;
 import robot.oi.OI;
 import robot.subsystems.CanDriveSubsystem;
 
@@ -49,6 +50,10 @@ public class DefaultDriveCommand extends TDefaultDriveCommand {
             logMessage(getParmDesc() + " starting");
         }
         
+        // Do not hold a heading that was captured before this
+        // command was interrupted.
+        driveSubsystem.releaseHeadingHold();
+
         super.initialize();
     }
 
@@ -73,29 +78,77 @@ public class DefaultDriveCommand extends TDefaultDriveCommand {
 
         TStick singleStickSide = oi.getSelectedSingleStickSide();
 
+        TStickPosition singleStickPosition = rightStickPosition;
+        if (singleStickSide == TStick.LEFT) {
+            singleStickPosition = leftStickPosition;
+        }
+
+        differentialDrive.setInputCurve(oi.getSelectedInputCurve());
+
         TSpeeds motorSpeeds;
 
-        switch (oi.getSelectedDriveType()) {
+        DriveControlType driveControlType = oi.getSelectedDriveType();
+
+        switch (driveControlType) {
 
         case SINGLE_STICK:
-            TStickPosition singleStickPosition = rightStickPosition;
-            if (singleStickSide == TStick.LEFT) {
-                singleStickPosition = leftStickPosition;
-            }
             motorSpeeds = differentialDrive.arcadeDrive(singleStickPosition);
             break;
 
+        case FIELD_ORIENTED:
+            // The gyro PID is required to steer to the field heading.
+            // Use single stick arcade drive until the gains are set.
+            if (!driveSubsystem.isGyroPidGainSet()) {
+                motorSpeeds = differentialDrive.arcadeDrive(singleStickPosition);
+                break;
+            }
+
+            // The single stick direction is the field heading to drive
+            // on, and the gyro PID steers the robot to that heading.
+            // The motor speeds are set by the drive subsystem.
+            double fieldSpeed = differentialDrive.fieldOrientedSpeed(singleStickPosition);
+
+            if (fieldSpeed > 0) {
+                driveSubsystem.driveOnFieldHeading(fieldSpeed, singleStickPosition.getAngle());
+            } else {
+                driveSubsystem.releaseHeadingHold();
+                driveSubsystem.setSpeed(0, 0);
+            }
+            return;
+
         case TANK:
             motorSpeeds = differentialDrive.tankDrive(leftStickPosition, rightStickPosition);
             break;
 
+        case CURVATURE:
+            motorSpeeds = differentialDrive.curvatureDrive(leftStickPosition, rightStickPosition);
+            break;
+
         case ARCADE:
         default:
             motorSpeeds = differentialDrive.arcadeDrive(leftStickPosition, rightStickPosition);
             break;
         }
 
-        driveSubsystem.setSpeed(motorSpeeds);
+        // Hold the heading when the driver is not rotating the robot.
+        // Heading hold is only used for drive types that have a
+        // separate rotation input.
+        boolean holdHeading = false;
+
+        if (oi.getHeadingHoldEnabled()
+                && (driveControlType == DriveControlType.ARCADE 
+                    || driveControlType == DriveControlType.CURVATURE)
+                && rightStickPosition != null
+                && Math.abs(rightStickPosition.x) <= differentialDrive.getInputDeadband()) {
+            holdHeading = true;
+        }
+
+        if (holdHeading) {
+            driveSubsystem.holdHeading((motorSpeeds.left + motorSpeeds.right) / 2.0);
+        } else {
+            driveSubsystem.releaseHeadingHold();
+            driveSubsystem.setSpeed(motorSpeeds);
+        }
     }
 
     @Override
@@ -16,6 +16,7 @@ public class AutoSelector {
     public static final String            PATTERN_STRAIGHT  = "Straight";
     public static final String            PATTERN_STR_NP    = "Straight No PID";
     public static final String            PATTERN_BOX       = "Box";
+    public static final String            PATTERN_BOX_CHAIN = "Box Chained";
 
     static {
 
@@ -32,6 +33,7 @@ public class AutoSelector {
         pattern.addObject(PATTERN_STRAIGHT, PATTERN_STRAIGHT);
         pattern.addDefault(PATTERN_BOX, PATTERN_BOX);
         pattern.addObject(PATTERN_STR_NP, PATTERN_STR_NP);
+        pattern.addObject(PATTERN_BOX_CHAIN, PATTERN_BOX_CHAIN);
 
         SmartDashboard.putData("Auto Pattern", pattern);
     }
@@ -39,7 +41,7 @@ public class AutoSelector {
     /**
      * Get the auto pattern.
      * 
-     * @return "Straight" or "Box"
+     * @return "Straight", "Straight No PID", "Box" or "Box Chained"
      */
     public static String getPattern() {
 
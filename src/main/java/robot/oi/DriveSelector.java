@@ -1,5 +1,9 @@
 package robot.oi;
 
+import java.util.Arrays;
+
+import com.torontocodingcollective.commands.TInputCurve;
+import com.torontocodingcollective.commands.TInputCurve.TCurveType;
 import com.torontocodingcollective.oi.TStick;
 
 import edu.wpi.first.wpilibj.smartdashboard.SendableChooser;
@@ -9,20 +13,46 @@ public class DriveSelector {
 
     public SendableChooser<String> driveControlType;
     public SendableChooser<String> singleStickSide;
+    public SendableChooser<String> inputCurveType;
 
     public static final String     DRIVE_CONTROL_TYPE_ARCADE       = "Arcade";
     public static final String     DRIVE_CONTROL_TYPE_TANK         = "Tank";
     public static final String     DRIVE_CONTROL_TYPE_SINGLE_STICK = "Single Stick";
+    public static final String     DRIVE_CONTROL_TYPE_CURVATURE    = "Curvature";
+    public static final String     DRIVE_CONTROL_TYPE_FIELD        = "Field Oriented";
 
     public static final String     SINGLE_STICK_LEFT               = "Left";
     public static final String     SINGLE_STICK_RIGHT              = "Right";
 
+    public static final String     INPUT_CURVE_DEFAULT             = "Default";
+    public static final String     INPUT_CURVE_LINEAR              = "Linear";
+    public static final String     INPUT_CURVE_EXPO                = "Expo";
+    public static final String     INPUT_CURVE_CUBIC               = "Cubic";
+    public static final String     INPUT_CURVE_CUSTOM              = "Custom";
+
+    private static final String    INPUT_CURVE_EXPO_KEY            = "Drive Curve Expo";
+    private static final String    INPUT_CURVE_POINTS_KEY          = "Drive Curve Points";
+
+    private static final double    DEFAULT_EXPO_FACTOR             = 0.5;
+
+    // Custom curve outputs at evenly spaced inputs (0.25, 0.5, 0.75, 1.0)
+    // The default points match the default input curve.
+    private static final double[]  DEFAULT_CURVE_POINTS            = { 0.125, 0.25, 0.5625, 1.0 };
+
+    // The input curve is only rebuilt when the dashboard selections change
+    private TInputCurve            inputCurve                      = new TInputCurve();
+    private String                 inputCurveSelection             = INPUT_CURVE_DEFAULT;
+    private double                 inputCurveExpo                  = DEFAULT_EXPO_FACTOR;
+    private double[]               inputCurvePoints                = DEFAULT_CURVE_POINTS;
+
     {
         // Drive Type
         driveControlType = new SendableChooser<>();
         driveControlType.addDefault(DRIVE_CONTROL_TYPE_ARCADE, DRIVE_CONTROL_TYPE_ARCADE);
         driveControlType.addObject(DRIVE_CONTROL_TYPE_TANK, DRIVE_CONTROL_TYPE_TANK);
         driveControlType.addObject(DRIVE_CONTROL_TYPE_SINGLE_STICK, DRIVE_CONTROL_TYPE_SINGLE_STICK);
+        driveControlType.addObject(DRIVE_CONTROL_TYPE_CURVATURE, DRIVE_CONTROL_TYPE_CURVATURE);
+        driveControlType.addObject(DRIVE_CONTROL_TYPE_FIELD, DRIVE_CONTROL_TYPE_FIELD);
 
         SmartDashboard.putData("Drive Type", driveControlType);
 
@@ -32,6 +62,19 @@ public class DriveSelector {
         singleStickSide.addObject(SINGLE_STICK_LEFT, SINGLE_STICK_LEFT);
 
         SmartDashboard.putData("Single Stick Side", singleStickSide);
+
+        // Input Curve
+        inputCurveType = new SendableChooser<>();
+        inputCurveType.addDefault(INPUT_CURVE_DEFAULT, INPUT_CURVE_DEFAULT);
+        inputCurveType.addObject(INPUT_CURVE_LINEAR, INPUT_CURVE_LINEAR);
+        inputCurveType.addObject(INPUT_CURVE_EXPO, INPUT_CURVE_EXPO);
+        inputCurveType.addObject(INPUT_CURVE_CUBIC, INPUT_CURVE_CUBIC);
+        inputCurveType.addObject(INPUT_CURVE_CUSTOM, INPUT_CURVE_CUSTOM);
+
+        SmartDashboard.putData("Drive Curve", inputCurveType);
+
+        SmartDashboard.putNumber(INPUT_CURVE_EXPO_KEY, DEFAULT_EXPO_FACTOR);
+        SmartDashboard.putNumberArray(INPUT_CURVE_POINTS_KEY, DEFAULT_CURVE_POINTS);
     }
 
     /**
@@ -44,12 +87,66 @@ public class DriveSelector {
             return DriveControlType.TANK;
         case DRIVE_CONTROL_TYPE_SINGLE_STICK:
             return DriveControlType.SINGLE_STICK;
+        case DRIVE_CONTROL_TYPE_CURVATURE:
+            return DriveControlType.CURVATURE;
+        case DRIVE_CONTROL_TYPE_FIELD:
+            return DriveControlType.FIELD_ORIENTED;
         case DRIVE_CONTROL_TYPE_ARCADE:
         default:
             return DriveControlType.ARCADE;
         }
     }
 
+    /**
+     * Get the Input Curve
+     * <p>
+     * The curve is built from the curve type, expo factor and custom curve points
+     * on the SmartDashboard. The curve is only rebuilt when one of the values
+     * changes.
+     */
+    public TInputCurve getInputCurve() {
+
+        String selection = inputCurveType.getSelected();
+        double expo = SmartDashboard.getNumber(INPUT_CURVE_EXPO_KEY, DEFAULT_EXPO_FACTOR);
+        double[] points = SmartDashboard.getNumberArray(INPUT_CURVE_POINTS_KEY, DEFAULT_CURVE_POINTS);
+
+        if (selection.equals(inputCurveSelection) 
+                && expo == inputCurveExpo
+                && Arrays.equals(points, inputCurvePoints)) {
+            return inputCurve;
+        }
+
+        inputCurveSelection = selection;
+        inputCurveExpo = expo;
+        inputCurvePoints = points;
+
+        switch (selection) {
+        case INPUT_CURVE_LINEAR:
+            inputCurve = new TInputCurve(TCurveType.LINEAR, expo);
+            break;
+        case INPUT_CURVE_EXPO:
+            inputCurve = new TInputCurve(TCurveType.EXPO, expo);
+            break;
+        case INPUT_CURVE_CUBIC:
+            inputCurve = new TInputCurve(TCurveType.CUBIC, expo);
+            break;
+        case INPUT_CURVE_CUSTOM:
+            // The custom points are evenly spaced over the input range
+            double[] inputs = new double[points.length];
+            for (int i = 0; i < points.length; i++) {
+                inputs[i] = (i + 1.0) / points.length;
+            }
+            inputCurve = new TInputCurve(inputs, points);
+            break;
+        case INPUT_CURVE_DEFAULT:
+        default:
+            inputCurve = new TInputCurve();
+            break;
+        }
+
+        return inputCurve;
+    }
+
     /**
      * Get the Single Stick side
      */
@@ -67,5 +164,6 @@ public class DriveSelector {
     public void updatePeriodic() {
         SmartDashboard.putString("Drive Control", String.valueOf(getDriveControlType()));
         SmartDashboard.putString("Single Stick Side", String.valueOf(getSingleStickSide()));
+        SmartDashboard.putString("Input Curve", String.valueOf(getInputCurve()));
     }
 }
@@ -1,5 +1,6 @@
 package robot.oi;
 
+import com.torontocodingcollective.commands.TInputCurve;
 import com.torontocodingcollective.oi.TButton;
 import com.torontocodingcollective.oi.TGameController;
 import com.torontocodingcollective.oi.TGameController_Logitech;
@@ -25,20 +26,22 @@ import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
  * Buttons: Start Button = Reset Encoders and Gyro Back Button = Cancel any
  * Command
  * 
- * Bumpers/Triggers: Left Bumper = Turbo shift
+ * Bumpers/Triggers: Left Bumper = Turbo shift Right Bumper = Toggle Heading
+ * Hold
  * 
  * POV: Any Angle = Rotate to the Pressed Angle
  * 
  */
 public class OI extends TOi {
 
-    private TGameController driverController = new TGameController_Logitech(0);
-    private TRumbleManager  driverRumble     = new TRumbleManager("Driver", driverController);
+    private TGameController driverController  = new TGameController_Logitech(0);
+    private TRumbleManager  driverRumble      = new TRumbleManager("Driver", driverController);
 
-    private TToggle         compressorToggle = new TToggle(driverController, TStick.LEFT);
-    private TToggle         speedPidToggle   = new TToggle(driverController, TStick.RIGHT);
+    private TToggle         compressorToggle  = new TToggle(driverController, TStick.LEFT);
+    private TToggle         speedPidToggle    = new TToggle(driverController, TStick.RIGHT);
+    private TToggle         headingHoldToggle = new TToggle(driverController, TButton.RIGHT_BUMPER);
 
-    private DriveSelector   driveSelector    = new DriveSelector();
+    private DriveSelector   driveSelector     = new DriveSelector();
 
     @Override
     public boolean getCancelCommand() {
@@ -49,6 +52,16 @@ public class OI extends TOi {
         return compressorToggle.get();
     }
 
+    /**
+     * Get Heading Hold Enabled
+     * 
+     * @return {@code true} if the robot should hold the heading when the driver
+     *         is not rotating, {@code false} otherwise
+     */
+    public boolean getHeadingHoldEnabled() {
+        return headingHoldToggle.get();
+    }
+
     @Override
     public TStickPosition getDriveStickPosition(TStick stick) {
         return driverController.getStickPosition(stick);
@@ -74,6 +87,16 @@ public class OI extends TOi {
         return driveSelector.getDriveControlType();
     }
 
+    /**
+     * Get the selected drive input curve
+     * 
+     * @return {@link TInputCurve} selected on the SmartDashboard. The default
+     *         input curve is {@link TInputCurve.TCurveType#DEFAULT}
+     */
+    public TInputCurve getSelectedInputCurve() {
+        return driveSelector.getInputCurve();
+    }
+
     /**
      * Get the selected single stick side
      * 
@@ -96,6 +119,7 @@ public class OI extends TOi {
     public void init() {
         compressorToggle.set(true);
         speedPidToggle.set(false);
+        headingHoldToggle.set(true);
     }
 
     public void setSpeedPidEnabled(boolean state) {
@@ -105,14 +129,19 @@ public class OI extends TOi {
     @Override
     public void updatePeriodic() {
 
+        // Read the controller inputs once for this cycle
+        super.updatePeriodic();
+
         // Update all Toggles
         compressorToggle.updatePeriodic();
         speedPidToggle.updatePeriodic();
+        headingHoldToggle.updatePeriodic();
         driverRumble.updatePeriodic();
 
         // Update all SmartDashboard values
         SmartDashboard.putBoolean("Speed PID Toggle", getSpeedPidEnabled());
         SmartDashboard.putBoolean("Compressor Toggle", getCompressorEnabled());
+        SmartDashboard.putBoolean("Heading Hold Toggle", getHeadingHoldEnabled());
         SmartDashboard.putString("Driver Controller", driverController.toString());
     }
 }
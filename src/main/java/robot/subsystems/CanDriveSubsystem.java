@@ -1,8 +1,12 @@
 package robot.subsystems;
 
 import com.torontocodingcollective.sensors.encoder.TEncoder;
+import com.torontocodingcollective.sensors.encoder.TVelocityEstimator;
+import com.torontocodingcollective.sensors.encoder.TVelocityEstimator.TVelocityFilterType;
 import com.torontocodingcollective.sensors.gyro.TAnalogGyro;
+import com.torontocodingcollective.sensors.gyro.TFusedGyro;
 import com.torontocodingcollective.speedcontroller.TCanSpeedController;
+import com.torontocodingcollective.speedcontroller.TSpeedController;
 import com.torontocodingcollective.subsystem.TGyroDriveSubsystem;
 
 import edu.wpi.first.wpilibj.Solenoid;
@@ -52,10 +56,27 @@ public class CanDriveSubsystem extends TGyroDriveSubsystem {
                 RobotConst.DRIVE_GYRO_PID_KI, 
                 RobotConst.DRIVE_MAX_ROTATION_OUTPUT);
 
+        // Configure the output of the CAN bus speed controllers
+        for (TSide side : TSide.values()) {
+
+            TSpeedController speedController = getSpeedController(side);
+
+            if (RobotConst.DRIVE_VOLTAGE_COMPENSATION > 0) {
+                speedController.enableVoltageCompensation(RobotConst.DRIVE_VOLTAGE_COMPENSATION);
+            }
+            speedController.setOpenLoopRampRate(RobotConst.DRIVE_OPEN_LOOP_RAMP);
+            speedController.setClosedLoopRampRate(RobotConst.DRIVE_CLOSED_LOOP_RAMP);
+        }
+
         // Get the encoders attached to the CAN bus speed controllers
         TEncoder leftEncoder = getSpeedController(TSide.LEFT).getEncoder();
         TEncoder rightEncoder = getSpeedController(TSide.RIGHT).getEncoder();
 
+        // Calculate the encoder rates from the encoder distance
+        // to reduce the noise in the speed PID
+        leftEncoder.setVelocityEstimator(new TVelocityEstimator(TVelocityFilterType.MOVING_AVERAGE));
+        rightEncoder.setVelocityEstimator(new TVelocityEstimator(TVelocityFilterType.MOVING_AVERAGE));
+
         super.setEncoders(
                 leftEncoder,  RobotMap.LEFT_DRIVE_CAN_MOTOR_ISINVERTED,
                 rightEncoder, RobotMap.RIGHT_DRIVE_CAN_MOTOR_ISINVERTED, 
@@ -63,6 +84,11 @@ public class CanDriveSubsystem extends TGyroDriveSubsystem {
                 RobotConst.DRIVE_SPEED_PID_KP,
                 RobotConst.DRIVE_SPEED_PID_KI,
                 RobotConst.MAX_LOW_GEAR_SPEED);
+
+        // Fuse the gyro with the drive encoders to reduce the gyro drift
+        gyro = new TFusedGyro(gyro, leftEncoder, rightEncoder,
+                RobotConst.ENCODER_COUNTS_PER_INCH,
+                RobotConst.DRIVE_TRACK_WIDTH_INCHES);
     }
 
     @Override
@@ -0,0 +1,210 @@
+package com.torontocodingcollective.speedcontroller;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.torontocodingcollective.speedcontroller.TCanSpeedController.TCanSpeedControllerType;
+import com.torontocodingcollective.speedcontroller.TCanStatusFrames.TCanStatusFrameRole;
+import com.torontocodingcollective.speedcontroller.TSpeedController.TNeutralMode;
+
+/**
+ * Tests the {@link TCanSpeedController} on {@link TVirtualCanDevice}s
+ */
+public class TCanSpeedControllerTest {
+
+    private static final double      DELTA = 1e-6;
+
+    private TVirtualCanDeviceFactory factory;
+
+    @Before
+    public void setUp() {
+        factory = new TVirtualCanDeviceFactory();
+        factory.setTime(0);
+        TCanSpeedController.setDeviceFactory(factory);
+    }
+
+    @After
+    public void tearDown() {
+        TCanSpeedController.setDeviceFactory(null);
+    }
+
+    @Test
+    public void ctreFollowersFollowInHardware() {
+
+        new TCanSpeedController(TCanSpeedControllerType.TALON_SRX, 1, 2, 3);
+
+        TVirtualCanDevice leader = factory.getDevice(1);
+
+        for (int address = 2; address <= 3; address++) {
+            TVirtualCanDevice follower = factory.getDevice(address);
+            assertSame(leader, follower.getLeader());
+            assertEquals(TCanStatusFrameRole.FOLLOWER, follower.getStatusFrameRole());
+        }
+
+        assertEquals(TCanStatusFrameRole.LEADER_WITH_FEEDBACK, leader.getStatusFrameRole());
+    }
+
+    @Test
+    public void followersOnlyWriteWhenTheyCannotFollowInHardware() {
+
+        TCanSpeedController controller = new TCanSpeedController(
+                TCanSpeedControllerType.SPARK_MAX_BRUSHLESS, 1,
+                TCanSpeedControllerType.TALON_SRX, 2);
+        controller.addFollower(TCanSpeedControllerType.SPARK_MAX_BRUSHLESS, 3);
+
+        TVirtualCanDevice leader = factory.getDevice(1);
+        TVirtualCanDevice ctreFollower = factory.getDevice(2);
+        TVirtualCanDevice sparkFollower = factory.getDevice(3);
+
+        // A CTRE device cannot follow a SPARK MAX
+        assertNull(ctreFollower.getLeader());
+        assertSame(leader, sparkFollower.getLeader());
+
+        controller.set(0.5);
+
+        assertEquals(1, leader.getWriteCount());
+        assertEquals(1, ctreFollower.getWriteCount());
+        assertEquals(0, sparkFollower.getWriteCount());
+
+        factory.advanceTime(0.1);
+
+        assertEquals(0.5, leader.getAppliedOutput(), DELTA);
+        assertEquals(0.5, ctreFollower.getAppliedOutput(), DELTA);
+        assertEquals(0.5, sparkFollower.getAppliedOutput(), DELTA);
+    }
+
+    @Test
+    public void invertedOutputIsFollowed() {
+
+        TCanSpeedController controller = new TCanSpeedController(TCanSpeedControllerType.TALON_SRX, 1, true, 2);
+
+        controller.set(0.4);
+        factory.advanceTime(0.1);
+
+        assertEquals(0.4, controller.get(), DELTA);
+        assertEquals(-0.4, factory.getDevice(1).getAppliedOutput(), DELTA);
+        assertEquals(-0.4, factory.getDevice(2).getAppliedOutput(), DELTA);
+    }
+
+    @Test
+    public void outputWithinToleranceIsNotSent() {
+
+        TCanSpeedController controller = new TCanSpeedController(TCanSpeedControllerType.TALON_SRX, 1);
+        TVirtualCanDevice device = factory.getDevice(1);
+
+        controller.set(0.5);
+        assertEquals(1, device.getWriteCount());
+
+        factory.advanceTime(0.02);
+        controller.set(0.5 + TCanSpeedController.OUTPUT_TOLERANCE / 2);
+        assertEquals(1, device.getWriteCount());
+
+        factory.advanceTime(0.02);
+        controller.set(0.6);
+        assertEquals(2, device.getWriteCount());
+    }
+
+    @Test
+    public void unchangedOutputIsRefreshed() {
+
+        TCanSpeedController controller = new TCanSpeedController(TCanSpeedControllerType.TALON_SRX, 1);
+        TVirtualCanDevice device = factory.getDevice(1);
+
+        controller.set(0.5);
+
+        // A 20ms loop sends the output again every refresh period
+        for (int i = 0; i < 10; i++) {
+            factory.advanceTime(0.02);
+            controller.set(0.5);
+        }
+
+        assertEquals(4, device.getWriteCount());
+    }
+
+    @Test
+    public void stopIsAlwaysSent() {
+
+        TCanSpeedController controller = new TCanSpeedController(TCanSpeedControllerType.TALON_SRX, 1);
+        TVirtualCanDevice device = factory.getDevice(1);
+
+        // A small output followed by zero is within the tolerance
+        controller.set(TCanSpeedController.OUTPUT_TOLERANCE / 2);
+        controller.set(0);
+        assertEquals(2, device.getWriteCount());
+
+        // stopMotor bypasses the output cache
+        controller.stopMotor();
+        controller.stopMotor();
+        assertEquals(4, device.getWriteCount());
+        assertEquals(0, controller.get(), DELTA);
+    }
+
+    @Test
+    public void openLoopRampLimitsTheOutput() {
+
+        TCanSpeedController controller = new TCanSpeedController(TCanSpeedControllerType.TALON_SRX, 1, 2);
+        controller.setOpenLoopRampRate(0.5);
+
+        TVirtualCanDevice leader = factory.getDevice(1);
+        TVirtualCanDevice follower = factory.getDevice(2);
+
+        assertEquals(0.5, leader.getOpenLoopRampRate(), DELTA);
+
+        controller.set(1.0);
+        factory.advanceTime(0.25 + factory.getLatency());
+
+        // Half way to full output, and the follower follows the ramp
+        assertEquals(0.5, leader.getAppliedOutput(), 0.01);
+        assertEquals(leader.getAppliedOutput(), follower.getAppliedOutput(), DELTA);
+
+        factory.advanceTime(0.5);
+        assertEquals(1.0, leader.getAppliedOutput(), DELTA);
+    }
+
+    @Test
+    public void neutralModeIsSetOnAllDevices() {
+
+        TCanSpeedController controller = new TCanSpeedController(
+                TCanSpeedControllerType.TALON_SRX, 1,
+                TCanSpeedControllerType.SPARK_MAX_BRUSHLESS, 2);
+
+        controller.setNeutralMode(TNeutralMode.BRAKE);
+
+        assertEquals(TNeutralMode.BRAKE, factory.getDevice(1).getNeutralMode());
+        assertEquals(TNeutralMode.BRAKE, factory.getDevice(2).getNeutralMode());
+
+        controller.setNeutralMode(TNeutralMode.COAST);
+
+        assertEquals(TNeutralMode.COAST, factory.getDevice(1).getNeutralMode());
+        assertEquals(TNeutralMode.COAST, factory.getDevice(2).getNeutralMode());
+    }
+
+    @Test
+    public void brakeStopsFasterThanCoast() {
+
+        double brakeVelocity = getVelocityAfterStop(TNeutralMode.BRAKE, 1);
+        double coastVelocity = getVelocityAfterStop(TNeutralMode.COAST, 2);
+
+        assertTrue(brakeVelocity < coastVelocity / 2);
+    }
+
+    private double getVelocityAfterStop(TNeutralMode neutralMode, int canAddress) {
+
+        TCanSpeedController controller = new TCanSpeedController(TCanSpeedControllerType.TALON_SRX, canAddress);
+        controller.setNeutralMode(neutralMode);
+
+        controller.set(1.0);
+        factory.advanceTime(1.0);
+
+        controller.set(0);
+        factory.advanceTime(0.2);
+
+        return factory.getDevice(canAddress).getVelocity();
+    }
+}
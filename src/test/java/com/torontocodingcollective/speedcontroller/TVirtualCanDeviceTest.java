@@ -0,0 +1,109 @@
+package com.torontocodingcollective.speedcontroller;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.torontocodingcollective.sensors.encoder.TEncoder;
+import com.torontocodingcollective.speedcontroller.TCanSpeedController.TCanSpeedControllerType;
+
+/**
+ * Tests the {@link TVirtualCanDevice} model
+ */
+public class TVirtualCanDeviceTest {
+
+    private static final double      DELTA = 1e-6;
+
+    private TVirtualCanDeviceFactory factory;
+
+    @Before
+    public void setUp() {
+        factory = new TVirtualCanDeviceFactory();
+        factory.setTime(0);
+    }
+
+    @Test
+    public void outputIsAppliedAfterTheLatency() {
+
+        factory.setLatency(0.01);
+
+        TVirtualCanDevice device = (TVirtualCanDevice) factory.newDevice(TCanSpeedControllerType.TALON_SRX, 1);
+
+        device.set(0.5);
+
+        factory.advanceTime(0.005);
+        assertEquals(0, device.getAppliedOutput(), DELTA);
+
+        factory.advanceTime(0.01);
+        assertEquals(0.5, device.getAppliedOutput(), DELTA);
+    }
+
+    @Test
+    public void voltageCompensationHoldsTheSpeed() {
+
+        TVirtualCanDevice device = (TVirtualCanDevice) factory.newDevice(TCanSpeedControllerType.TALON_SRX, 1);
+
+        device.enableVoltageCompensation(11.0);
+        device.setBusVoltage(12.5);
+        device.set(1.0);
+        factory.advanceTime(2.0);
+
+        double speed = device.getVelocity();
+
+        device.setBusVoltage(11.5);
+        factory.advanceTime(2.0);
+
+        assertEquals(speed, device.getVelocity(), 1.0);
+        assertEquals(TVirtualCanDevice.DEFAULT_FREE_SPEED * 11.0 / 12.0, speed, 1.0);
+    }
+
+    @Test
+    public void talonEncoderRateIsCountsPer100ms() {
+
+        TVirtualCanDevice device = (TVirtualCanDevice) factory.newDevice(TCanSpeedControllerType.TALON_SRX, 1);
+        TEncoder encoder = device.getEncoder(false);
+
+        device.set(1.0);
+        factory.advanceTime(2.0);
+
+        assertEquals(0.1, encoder.getRatePeriod(), DELTA);
+        assertEquals(device.getVelocity() * 0.1, encoder.getRate(), 1.0);
+        assertEquals(device.getPosition(), encoder.getDistance(), device.getVelocity() * 0.02);
+    }
+
+    @Test
+    public void sparkMaxEncoderRateIsCountsPerSecond() {
+
+        TVirtualCanDevice device = (TVirtualCanDevice) factory.newDevice(
+                TCanSpeedControllerType.SPARK_MAX_BRUSHLESS, 1);
+        TEncoder encoder = device.getEncoder(true);
+
+        device.set(1.0);
+        factory.advanceTime(2.0);
+
+        assertEquals(1.0, encoder.getRatePeriod(), DELTA);
+        assertEquals(-device.getVelocity(), encoder.getRate(), 10.0);
+    }
+
+    @Test
+    public void victorHasNoEncoder() {
+        TCanDevice device = factory.newDevice(TCanSpeedControllerType.VICTOR_SPX, 1);
+        assertNull(device.getEncoder(false));
+    }
+
+    @Test
+    public void stickyFaultIsCleared() {
+
+        TVirtualCanDevice device = (TVirtualCanDevice) factory.newDevice(TCanSpeedControllerType.TALON_SRX, 1);
+
+        device.setStickyFault(true);
+        assertTrue(device.hasStickyFault());
+
+        device.clearStickyFaults();
+        assertFalse(device.hasStickyFault());
+    }
+}